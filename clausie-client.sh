@@ -0,0 +1,5 @@
+#!/bin/bash
+
+DIR=`dirname $0`
+
+java -cp $DIR:$DIR/build:$DIR/clausie_lib/jopt-simple-4.4.jar de.mpii.clausie.ClausIEClient $*
@@ -0,0 +1,104 @@
+package de.mpii.clausie;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Caches the parses of another backend, so that repeated sentences are parsed only once.
+ *
+ * Sentences are normalized before lookup ({@link PropositionCache#normalize(String)}). The cache
+ * holds a bounded number of parses and evicts the least recently used one. Backends obtained from
+ * {@link #fork()} share the cache, which is safe for use by multiple threads. Cached parses do not
+ * retain the constituency tree ({@link Parse#withoutTree()}), so this backend cannot be used below
+ * a {@link LengthRouter} that splits sentences.
+ *
+ * @date $ $
+ * @version $ $ */
+public class CachingParserBackend implements ParserBackend {
+
+	/** Parses of the cached sentences; access-ordered so that the eldest entry is the least
+	 * recently used one */
+	private static final class Cache extends LinkedHashMap<String, Parse> {
+		private static final long serialVersionUID = 1L;
+
+		/** Maximum number of entries */
+		private final int capacity;
+
+		/** Number of lookups that found an entry */
+		final AtomicLong hits = new AtomicLong();
+
+		/** Number of lookups that did not find an entry */
+		final AtomicLong misses = new AtomicLong();
+
+		Cache(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Parse> eldest) {
+			return size() > capacity;
+		}
+	}
+
+	private final ParserBackend delegate;
+	private final Cache cache;
+
+	/** Creates a backend that caches the parses of up to {@code maxSentences} sentences of
+	 * {@code delegate} */
+	public CachingParserBackend(ParserBackend delegate, int maxSentences) {
+		this(delegate, new Cache(maxSentences));
+		if (maxSentences <= 0) {
+			throw new IllegalArgumentException("Cache size must be positive");
+		}
+	}
+
+	private CachingParserBackend(ParserBackend delegate, Cache cache) {
+		this.delegate = delegate;
+		this.cache = cache;
+	}
+
+	@Override
+	public Parse parse(String sentence) {
+		String key = PropositionCache.normalize(sentence);
+		Parse parse;
+		synchronized (cache) {
+			parse = cache.get(key);
+		}
+		if (parse != null) {
+			cache.hits.incrementAndGet();
+			return parse;
+		}
+		cache.misses.incrementAndGet();
+		parse = delegate.parse(sentence).withoutTree();
+		synchronized (cache) {
+			cache.put(key, parse);
+		}
+		return parse;
+	}
+
+	/** Returns a backend that forks the underlying backend and shares the cache of this backend */
+	@Override
+	public ParserBackend fork() {
+		return new CachingParserBackend(delegate.fork(), cache);
+	}
+
+	/** Returns the number of lookups that found a parse */
+	public long getHits() {
+		return cache.hits.get();
+	}
+
+	/** Returns the number of lookups that did not find a parse */
+	public long getMisses() {
+		return cache.misses.get();
+	}
+
+	@Override
+	public String toString() {
+		int size;
+		synchronized (cache) {
+			size = cache.size();
+		}
+		return "hits: " + getHits() + ", misses: " + getMisses() + ", size: " + size;
+	}
+}
@@ -1,15 +1,16 @@
 package de.mpii.clausie;
 
-import java.io.DataInput;
-import java.io.DataInputStream;
+import java.io.BufferedReader;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.PrintStream;
-import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 
 import joptsimple.OptionException;
@@ -21,15 +22,17 @@ import edu.stanford.nlp.ling.CoreLabel;
 import edu.stanford.nlp.objectbank.TokenizerFactory;
 import edu.stanford.nlp.parser.lexparser.LexicalizedParser;
 import edu.stanford.nlp.parser.lexparser.LexicalizedParserQuery;
-import edu.stanford.nlp.pipeline.ParserAnnotatorUtils;
-import edu.stanford.nlp.process.CoreLabelTokenFactory;
-import edu.stanford.nlp.process.PTBTokenizer;
 import edu.stanford.nlp.trees.Tree;
 import edu.stanford.nlp.trees.semgraph.SemanticGraph;
 
 public class ClausIE {
+	/** Parser model used by {@link #initParser()} */
+	public static final String DEFAULT_MODEL = "edu/stanford/nlp/models/lexparser/englishPCFG.ser.gz";
+
 	Tree depTree;
+	TreeSpans spans;
 	SemanticGraph semanticGraph;
+	SentenceTokens tokens;
 
 	List<Clause> clauses = new ArrayList<Clause>();
 
@@ -40,13 +43,48 @@ public class ClausIE {
 
 	Options options;
 
-	private LexicalizedParser lp;
-	private TokenizerFactory<CoreLabel> tokenizerFactory;
-	private LexicalizedParserQuery lpq;
+	// produces the parse of each sentence
+	private ParserBackend parserBackend;
+
+	// score of the parse of the current sentence
+	double score;
+
+	// whether the constituency tree of the current sentence is kept after
+	// parsing; only its spans are needed for extraction
+	private boolean retainTree = true;
+
+	// cache of the propositions of sentences (null if not used)
+	private PropositionCache cache;
+
+	// Indicates if some propositions were not generated because the
+	// proposition budget of a clause or of the sentence was exceeded
+	boolean truncated = false;
+
+	// number of propositions generated for the current clause and sentence
+	private int clausePropositions;
+	private int sentencePropositions;
+
+	// fingerprints of the propositions generated for the current sentence and
+	// the propositions themselves (only used when deduplicating)
+	private final LongHashSet seenPropositions = new LongHashSet();
+	private final List<Proposition> seenPropositionList = new ArrayList<Proposition>();
 
-	// Indicates if the clause processed comes from an xcomp constituent of the
-	// original sentence
-	boolean xcomp = false;
+	// include masks of the combinations of constituents of the current clause
+	private long[] includeMasks = new long[16];
+	private int noIncludeMasks;
+
+	// clauses allocated so far; the first noPooledClauses are in use for the
+	// current sentence, the remaining ones are reused by newClause()
+	private final List<Clause> clausePool = new ArrayList<Clause>();
+	private int noPooledClauses;
+
+	// clause whose constituents are replaced by their alternatives during
+	// proposition generation
+	private final Clause tempClause = new Clause();
+
+	// whether the verb or an adverbial of tempClause has been replaced since
+	// its layout was last computed
+	private boolean layoutChanged;
 
 	// -- construction
 	// ----------------------------------------------------------------------------
@@ -62,9 +100,21 @@ public class ClausIE {
 	public ClausIE(LexicalizedParser lp, TokenizerFactory<CoreLabel> tokenizerFactory,
 			LexicalizedParserQuery lpq) {
 		this(new Options());
-		this.lp = lp;
-		this.tokenizerFactory = tokenizerFactory;
-		this.lpq = lpq;
+		this.parserBackend = new PcfgParserBackend(lp, tokenizerFactory, lpq);
+	}
+
+	/**
+	 * Creates an instance with the given options that shares the parser model
+	 * and the cache of {@code other}, which must have been initialized
+	 * ({@link #initParser()}), but has its own fork of the parser backend
+	 * ({@link ParserBackend#fork()}). The two instances can then be used
+	 * concurrently by different threads.
+	 */
+	public ClausIE(ClausIE other, Options options) {
+		this(options);
+		this.parserBackend = other.parserBackend.fork();
+		this.cache = other.cache;
+		this.retainTree = other.retainTree;
 	}
 
 	// -- misc method
@@ -74,47 +124,141 @@ public class ClausIE {
 		return options;
 	}
 
+	/**
+	 * Sets the options used for the next sentences, e.g., the options of an
+	 * {@link Options.Profile}; must not be called while a sentence is
+	 * processed.
+	 */
+	public void setOptions(Options options) {
+		this.options = options;
+	}
+
+	/**
+	 * Clears the current sentence. The clauses of the sentence are reused for
+	 * the next sentence, i.e., clauses obtained from {@link #getClauses()}
+	 * must not be used after this method has been called.
+	 */
 	public void clear() {
 		semanticGraph = null;
 		depTree = null;
+		spans = null;
+		tokens = null;
 		clauses.clear();
 		propositions.clear();
+		truncated = false;
+		score = 0;
+		noPooledClauses = 0;
+	}
+
+	/**
+	 * Returns an empty clause for the current sentence; the clause is valid
+	 * until the next call to {@link #clear()}.
+	 */
+	Clause newClause() {
+		Clause clause;
+		if (noPooledClauses < clausePool.size()) {
+			clause = clausePool.get(noPooledClauses);
+			clause.reset();
+		} else {
+			clause = new Clause();
+			clausePool.add(clause);
+		}
+		noPooledClauses++;
+		return clause;
 	}
 
 	// -- parsing
 	// ---------------------------------------------------------------------------------
 
-	/** Initializes the Stanford parser. */
+	/** Initializes the Stanford parser with the default model. */
 	public void initParser() {
-		lp = LexicalizedParser
-				.loadModel("edu/stanford/nlp/models/lexparser/englishPCFG.ser.gz");
-		tokenizerFactory = PTBTokenizer
-				.factory(new CoreLabelTokenFactory(), "");
-		lpq = lp.parserQuery();
+		initParser(DEFAULT_MODEL);
+	}
+
+	/**
+	 * Initializes the Stanford parser with the given model, which may be
+	 * gzipped or not (see {@link PcfgParserBackend#load(String)}).
+	 */
+	public void initParser(String modelPath) {
+		parserBackend = PcfgParserBackend.load(modelPath);
+	}
+
+	/** Sets the backend used to parse sentences. */
+	public void setParserBackend(ParserBackend parserBackend) {
+		this.parserBackend = parserBackend;
+	}
+
+	/** Returns the backend used to parse sentences. */
+	public ParserBackend getParserBackend() {
+		return parserBackend;
 	}
 
 	/** Clears and parses a new sentence. */
 	public void parse(String sentence) {
 		clear();
-		List<CoreLabel> tokenizedSentence = tokenizerFactory.getTokenizer(
-				new StringReader(sentence)).tokenize();
-		lpq.parse(tokenizedSentence); // what about the confidence?
-		depTree = lpq.getBestParse();
-		// use uncollapsed dependencies to facilitate tree creation
-		semanticGraph = ParserAnnotatorUtils
-				.generateUncollapsedDependencies(depTree);
+		ParserBackend.Parse parse = parserBackend.parse(sentence);
+		depTree = retainTree ? parse.tree : null;
+		spans = parse.spans;
+		semanticGraph = parse.semanticGraph;
+		score = parse.score;
 	}
 
-	/** Returns the constituent tree for the sentence. */
+	/**
+	 * Clears the current sentence and takes over the parse of the current
+	 * sentence of {@code other}, e.g., to process it with different options.
+	 * The parse is shared, not copied; clause detection and proposition
+	 * generation do not modify it.
+	 */
+	public void adoptParse(ClausIE other) {
+		clear();
+		depTree = retainTree ? other.depTree : null;
+		spans = other.spans;
+		semanticGraph = other.semanticGraph;
+		score = other.score;
+	}
+
+	/** Returns the score of the parse of the sentence. */
+	public double getScore() {
+		return score;
+	}
+
+	/**
+	 * Returns the constituent tree for the sentence; null if the tree is not
+	 * retained ({@link #setRetainTree(boolean)}) or not available, e.g., for
+	 * sentences loaded from a {@link ClauseStore}.
+	 */
 	public Tree getDepTree() {
 		return depTree;
 	}
 
+	/**
+	 * Sets whether the constituent tree of a sentence is kept after parsing
+	 * (default: true). Extraction only needs the spans of the tree
+	 * ({@link TreeSpans}), so that the tree can be released right after
+	 * parsing to reduce the memory of the sentences in flight.
+	 */
+	public void setRetainTree(boolean retainTree) {
+		this.retainTree = retainTree;
+	}
+
+	/** Checks whether the constituent tree of a sentence is kept after parsing. */
+	public boolean isRetainTree() {
+		return retainTree;
+	}
+
 	/** Returns the dependency tree for the sentence. */
 	public SemanticGraph getSemanticGraph() {
 		return semanticGraph;
 	}
 
+	/** Returns the words of the sentence. */
+	public SentenceTokens getTokens() {
+		if (tokens == null && semanticGraph != null) {
+			tokens = new SentenceTokens(semanticGraph, options.lemmaIndex);
+		}
+		return tokens;
+	}
+
 	// -- clause detection
 	// ------------------------------------------------------------------------
 
@@ -131,165 +275,511 @@ public class ClausIE {
 	// -- proposition generation
 	// ------------------------------------------------------------------
 
-	/** Generates propositions from the clauses in the sentence. */
+	/**
+	 * Generates propositions from the clauses in the sentence and stores them
+	 * in {@link #getPropositions()}.
+	 */
 	public void generatePropositions() {
 		propositions.clear();
+		generatePropositions(new PropositionSink() {
+			@Override
+			public void add(Proposition proposition) {
+				propositions.add(proposition);
+			}
+		});
+	}
+
+	/**
+	 * Generates propositions from the clauses in the sentence and passes each
+	 * of them to {@code sink} as soon as it has been generated. The
+	 * propositions are not stored in {@link #getPropositions()}.
+	 */
+	public void generatePropositions(final PropositionSink sink) {
+		truncated = false;
+		sentencePropositions = 0;
+		final PropositionSink countingSink = new PropositionSink() {
+			@Override
+			public void add(Proposition proposition) {
+				sentencePropositions++;
+				sink.add(proposition);
+			}
+		};
+		PropositionSink generatorSink = countingSink;
+		if (options.deduplicate) {
+			// duplicates are dropped before they count towards the budget
+			seenPropositions.clear();
+			seenPropositionList.clear();
+			generatorSink = new PropositionSink() {
+				@Override
+				public void add(Proposition proposition) {
+					long fingerprint = proposition.fingerprint();
+					if (seenPropositions.add(fingerprint)
+							|| !isSeen(proposition, fingerprint)) {
+						seenPropositionList.add(proposition);
+						countingSink.add(proposition);
+					}
+				}
+			};
+		}
+
+		// let's start
+		for (Clause clause : clauses) {
+			generatePropositions(clause, false, generatorSink);
+		}
+	}
 
+	/**
+	 * Checks whether a proposition with the same text as {@code proposition}
+	 * has been generated for the current sentence. Only called if a
+	 * proposition with the same fingerprint has been generated, so that
+	 * distinct propositions whose fingerprints collide are kept.
+	 */
+	private boolean isSeen(Proposition proposition, long fingerprint) {
+		for (Proposition seen : seenPropositionList) {
+			if (seen.fingerprint() == fingerprint
+					&& seen.sameText(proposition)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Generates the propositions of a single clause.
+	 * 
+	 * @param xcomp
+	 *            indicates if the clause comes from an xcomp constituent; its
+	 *            propositions then form alternatives of that constituent and
+	 *            do not count towards the per-sentence budget
+	 */
+	private void generatePropositions(Clause clause, boolean xcomp,
+			final PropositionSink sink) {
 		// holds alternative options for each constituents (obtained by
 		// processing coordinated conjunctions and xcomps)
-		final List<List<Constituent>> constituents = new ArrayList<List<Constituent>>();
+		List<List<Constituent>> constituents = new ArrayList<List<Constituent>>(
+				clause.constituents.size());
 
-		// which of the constituents are required?
-		final List<Flag> flags = new ArrayList<Flag>();
-		final List<Boolean> include = new ArrayList<Boolean>();
+		// process coordinating conjunctions
+		for (int i = 0; i < clause.constituents.size(); i++) {
+			// if(xcomp && clause.subject == i) continue; //An xcomp does
+			// not have an internal subject so should not be processed here
+			Constituent constituent = clause.constituents.get(i);
+			List<Constituent> alternatives;
+			if (!(xcomp && clause.subject == i)
+					&& constituent instanceof IndexedConstituent
+					// the processing of the xcomps is done in Default
+					// proposition generator. 
+					// Otherwise we get duplicate propositions.
+					&& !clause.xcomps.contains(i)
+					&& options.expandConjunctions
+					&& ((i == clause.verb && options.processCcAllVerbs) || (i != clause.verb && options.processCcNonVerbs))) {
+				alternatives = ProcessConjunctions.processCC(spans,
+						clause, constituent, i);
+			} else if (!(xcomp && clause.subject == i)
+					&& clause.xcomps.contains(i) && options.processXcomps) {
+				// expand the clauses of the xcomp inline; each of their
+				// propositions (without its subject) forms an alternative
+				final List<Proposition> xcompPropositions = new ArrayList<Proposition>();
+				PropositionSink xcompSink = new PropositionSink() {
+					@Override
+					public void add(Proposition proposition) {
+						xcompPropositions.add(proposition);
+					}
+				};
+				for (Clause xcompClause : ((XcompConstituent) constituent)
+						.getClauses()) {
+					generatePropositions(xcompClause, true, xcompSink);
+				}
+				alternatives = new ArrayList<Constituent>(
+						xcompPropositions.size());
+				for (Proposition p : xcompPropositions) {
+					// to avoid including the subjecct, We could also generate
+					// the prop without the subject
+					alternatives.add(new PhraseConstituent(getTokens().intern(
+							Phrase.join(p.constituents.subList(1,
+									p.constituents.size()))), constituent.type));
+				}
+			} else {
+				alternatives = new ArrayList<Constituent>(1);
+				alternatives.add(constituent);
+			}
+			constituents.add(alternatives);
+		}
 
-		// holds all valid combination of constituents for which a proposition
-		// is to be generated
-		final List<List<Boolean>> includeConstituents = new ArrayList<List<Boolean>>();
+		// which of the constituents are required, optional or ignored? Bit
+		// i of each mask refers to constituent i.
+		clause.ensureLayout(options, getTokens());
+		if (clause.constituents.size() > Long.SIZE) {
+			// too many constituents for the masks
+			generateWidePropositions(clause, constituents, xcomp, sink);
+			return;
+		}
+		long required = clause.requiredMask;
+		long optional = clause.optionalMask;
 
-		// let's start
-		for (Clause clause : clauses) {
-			// process coordinating conjunctions
-			constituents.clear();
-			for (int i = 0; i < clause.constituents.size(); i++) {
-				// if(xcomp && clause.subject == i) continue; //An xcomp does
-				// not have an internal subject so should not be processed here
-				Constituent constituent = clause.constituents.get(i);
-				List<Constituent> alternatives;
-				if (!(xcomp && clause.subject == i)
-						&& constituent instanceof IndexedConstituent
-						// the processing of the xcomps is done in Default
-						// proposition generator. 
-						// Otherwise we get duplicate propositions.
-						&& !clause.xcomps.contains(i)
-						&& ((i == clause.verb && options.processCcAllVerbs) || (i != clause.verb && options.processCcNonVerbs))) {
-					alternatives = ProcessConjunctions.processCC(depTree,
-							clause, constituent, i);
-				} else if (!(xcomp && clause.subject == i)
-						&& clause.xcomps.contains(i)) {
-					alternatives = new ArrayList<Constituent>();
-					ClausIE xclausIE = new ClausIE(options);
-					xclausIE.semanticGraph = semanticGraph;
-					xclausIE.depTree = depTree;
-					xclausIE.xcomp = true;
-					xclausIE.clauses = ((XcompConstituent) clause.constituents
-							.get(i)).getClauses();
-					xclausIE.generatePropositions();
-					for (Proposition p : xclausIE.propositions) {
-						StringBuilder sb = new StringBuilder();
-						String sep = "";
-						for (int j = 0; j < p.constituents.size(); j++) {
-							if (j == 0)    // to avoid including the subjecct, We
-								continue;  // could also generate the prop
-							               // without the subject											
-							sb.append(sep);
-							sb.append(p.constituents.get(j));
-							sep = " ";
-						}
-						alternatives.add(new TextConstituent(sb.toString(),
-								constituent.type));
-					}
-				} else {
-					alternatives = new ArrayList<Constituent>(1);
-					alternatives.add(constituent);
+		// create a list of all combinations of constituents for which a
+		// proposition should be generated
+		noIncludeMasks = 0;
+		if (options.nary) {
+			// we always include all constituents for n-ary ouput 
+			// (optional parts marked later)
+			addIncludeMask(required | optional);
+		} else {
+			// triple mode; enumerate the subsets of the optional
+			// constituents with between minOptionalArgs and
+			// maxOptionalArgs elements. Subsets are iterated over the
+			// bit-reversed mask so that earlier constituents are included
+			// first.
+			int noOptional = Long.bitCount(optional);
+			int minOptional = Math.min(options.minOptionalArgs, noOptional);
+			long reversed = Long.reverse(optional);
+			long subset = reversed;
+			while (true) {
+				int selected = Long.bitCount(subset);
+				if (selected >= minOptional
+						&& selected <= options.maxOptionalArgs) {
+					addIncludeMask(required | Long.reverse(subset));
 				}
-				constituents.add(alternatives);
+				if (subset == 0)
+					break;
+				subset = (subset - 1) & reversed;
 			}
+		}
+
+		// fill the temporary clause for which to generate a proposition
+		// (xcomp clauses have been processed above, so it is not in use)
+		tempClause.copyFrom(clause);
+		layoutChanged = false;
+		clausePropositions = 0;
+		PropositionSink clauseSink = newClauseSink(xcomp, sink);
 
-			// create a list of all combinations of constituents for which a
-			// proposition should be generated
-			includeConstituents.clear();
-			flags.clear();
-			include.clear();
-			for (int i = 0; i < clause.constituents.size(); i++) {
-				Flag flag = clause.getFlag(i, options);
-				flags.add(flag);
-				include.add(!flag.equals(Flag.IGNORE));
+		// generate propositions; if the budget does not suffice for all
+		// combinations, combinations with fewer optional constituents are
+		// generated first
+		if (estimatePropositions(constituents) <= remainingBudget(xcomp)) {
+			for (int i = 0; i < noIncludeMasks; i++) {
+				selectConstituent(constituents, tempClause, 0,
+						includeMasks[i], null, xcomp, clauseSink);
 			}
-			if (options.nary) {
-				// we always include all constituents for n-ary ouput 
-				// (optional parts marked later)
-				includeConstituents.add(include);
-			} else {
-				// triple mode; determine which parts are required
-				for (int i = 0; i < clause.constituents.size(); i++) {
-					include.set(i, flags.get(i).equals(Flag.REQUIRED));
+		} else {
+			int maxSelected = Long.bitCount(optional);
+			combinations: for (int selected = 0; selected <= maxSelected; selected++) {
+				for (int i = 0; i < noIncludeMasks; i++) {
+					if (Long.bitCount(includeMasks[i] & optional) == selected
+							&& !selectConstituent(constituents, tempClause, 0,
+									includeMasks[i], null, xcomp, clauseSink)) {
+						break combinations;
+					}
 				}
+			}
+		}
+	}
 
-				// create combinations of required/optional constituents
-				new Runnable() {
-					int noOptional;
+	/**
+	 * Generates the propositions of a clause with more constituents than fit
+	 * into an include mask. As
+	 * {@link #generatePropositions(Clause, boolean, PropositionSink)}, but the
+	 * combinations of constituents are represented by bit sets.
+	 */
+	private void generateWidePropositions(Clause clause,
+			List<List<Constituent>> constituents, boolean xcomp,
+			final PropositionSink sink) {
+		int n = clause.constituents.size();
+		BitSet required = new BitSet(n);
+		BitSet optional = new BitSet(n);
+		for (int i = 0; i < n; i++) {
+			if (clause.flags[i] == Flag.REQUIRED) {
+				required.set(i);
+			} else if (clause.flags[i] == Flag.OPTIONAL) {
+				optional.set(i);
+			}
+		}
 
-					@Override
-					public void run() {
-						noOptional = 0;
-						for (Flag f : flags) {
-							if (f.equals(Flag.OPTIONAL))
-								noOptional++;
-						}
-						run(0, 0, new ArrayList<Boolean>());
-					}
+		// create a list of all combinations of constituents for which a
+		// proposition should be generated
+		List<BitSet> includes = new ArrayList<BitSet>();
+		if (options.nary) {
+			BitSet include = (BitSet) required.clone();
+			include.or(optional);
+			includes.add(include);
+		} else {
+			addWideIncludes(includes, required, optional, 0, 0,
+					Math.min(options.minOptionalArgs, optional.cardinality()));
+		}
+
+		tempClause.copyFrom(clause);
+		layoutChanged = false;
+		clausePropositions = 0;
+		PropositionSink clauseSink = newClauseSink(xcomp, sink);
 
-					private void run(int pos, int selected, List<Boolean> prefix) {
-						if (pos >= include.size()) {
-							if (selected >= Math.min(options.minOptionalArgs,
-									noOptional)
-									&& selected <= options.maxOptionalArgs) {
-								includeConstituents.add(new ArrayList<Boolean>(
-										prefix));
-							}
-							return;
-						}
-						prefix.add(true);
-						if (include.get(pos)) {
-							run(pos + 1, selected, prefix);
-						} else {
-							if (!flags.get(pos).equals(Flag.IGNORE)) {
-								run(pos + 1, selected + 1, prefix);
-							}
-							prefix.set(prefix.size() - 1, false);
-							run(pos + 1, selected, prefix);
-						}
-						prefix.remove(prefix.size() - 1);
+		// generate propositions; if the budget does not suffice for all
+		// combinations, combinations with fewer optional constituents are
+		// generated first
+		long estimate = 0;
+		for (BitSet include : includes) {
+			long product = 1;
+			for (int i = include.nextSetBit(0); i >= 0 && product > 0; i = include
+					.nextSetBit(i + 1)) {
+				int size = constituents.get(i).size();
+				product = size == 0 ? 0
+						: product > Long.MAX_VALUE / size ? Long.MAX_VALUE
+								: product * size;
+			}
+			estimate = estimate > Long.MAX_VALUE - product ? Long.MAX_VALUE
+					: estimate + product;
+		}
+		if (estimate <= remainingBudget(xcomp)) {
+			for (BitSet include : includes) {
+				selectConstituent(constituents, tempClause, 0, 0, include,
+						xcomp, clauseSink);
+			}
+		} else {
+			int maxSelected = optional.cardinality();
+			combinations: for (int selected = 0; selected <= maxSelected; selected++) {
+				for (BitSet include : includes) {
+					BitSet included = (BitSet) include.clone();
+					included.and(optional);
+					if (included.cardinality() == selected
+							&& !selectConstituent(constituents, tempClause, 0,
+									0, include, xcomp, clauseSink)) {
+						break combinations;
 					}
-				}.run();
+				}
 			}
+		}
+	}
 
-			// create a temporary clause for which to generate a proposition
-			final Clause tempClause = clause.clone();
+	/**
+	 * Adds the combinations of the required constituents with between
+	 * {@code minOptional} and {@link Options#maxOptionalArgs} of the optional
+	 * constituents to {@code includes}; constituents before position
+	 * {@code i} have been decided on in {@code required}, {@code selected} of
+	 * them optional ones.
+	 */
+	private void addWideIncludes(List<BitSet> includes, BitSet required,
+			BitSet optional, int i, int selected, int minOptional) {
+		if (selected > options.maxOptionalArgs) {
+			return;
+		}
+		i = optional.nextSetBit(i);
+		if (i < 0) {
+			if (selected >= minOptional) {
+				includes.add((BitSet) required.clone());
+			}
+			return;
+		}
+		required.set(i);
+		addWideIncludes(includes, required, optional, i + 1, selected + 1,
+				minOptional);
+		required.clear(i);
+		addWideIncludes(includes, required, optional, i + 1, selected,
+				minOptional);
+	}
 
-			// generate propositions
-			new Runnable() {
-				@Override
-				public void run() {
-					// select which constituents to include
-					for (List<Boolean> include : includeConstituents) {
-						// now select an alternative for each constituent
-						selectConstituent(0, include);
-					}
+	/**
+	 * Returns a sink that passes the propositions of the current clause to
+	 * {@code sink} as long as the per-clause and per-sentence budgets allow;
+	 * a single call of the proposition generator may produce several
+	 * propositions, so the budgets are enforced for each of them.
+	 */
+	private PropositionSink newClauseSink(final boolean xcomp,
+			final PropositionSink sink) {
+		return new PropositionSink() {
+			@Override
+			public void add(Proposition proposition) {
+				if (remainingBudget(xcomp) <= 0) {
+					truncated = true;
+					return;
+				}
+				clausePropositions++;
+				sink.add(proposition);
+			}
+		};
+	}
+
+	/** Appends an include mask to {@link #includeMasks}. */
+	private void addIncludeMask(long include) {
+		if (noIncludeMasks == includeMasks.length) {
+			includeMasks = Arrays.copyOf(includeMasks, 2 * includeMasks.length);
+		}
+		includeMasks[noIncludeMasks++] = include;
+	}
+
+	/**
+	 * Estimates the number of propositions generated for the combinations in
+	 * {@link #includeMasks}, i.e., the number of combinations of alternatives
+	 * of the included constituents. Saturates at {@link Long#MAX_VALUE}.
+	 */
+	private long estimatePropositions(List<List<Constituent>> constituents) {
+		long total = 0;
+		for (int m = 0; m < noIncludeMasks; m++) {
+			long product = 1;
+			for (int i = 0; i < constituents.size() && product > 0; i++) {
+				if ((includeMasks[m] & (1L << i)) != 0) {
+					int size = constituents.get(i).size();
+					product = size == 0 ? 0
+							: product > Long.MAX_VALUE / size ? Long.MAX_VALUE
+									: product * size;
 				}
+			}
+			total = total > Long.MAX_VALUE - product ? Long.MAX_VALUE : total
+					+ product;
+		}
+		return total;
+	}
 
-				void selectConstituent(int i, List<Boolean> include) {
-					if (i < constituents.size()) {
-						if (include.get(i)) {
-							List<Constituent> alternatives = constituents
-									.get(i);
-							for (int j = 0; j < alternatives.size(); j++) {
-								tempClause.constituents.set(i,
-										alternatives.get(j));
-								selectConstituent(i + 1, include);
-							}
-						} else {
-							selectConstituent(i + 1, include);
-						}
-					} else {
-						// everything selected; generate
-						propositionGenerator.generate(propositions, tempClause,
-								include);
+	/**
+	 * Returns the number of propositions that can still be generated for the
+	 * current clause within the per-clause and per-sentence budgets.
+	 */
+	private long remainingBudget(boolean xcomp) {
+		long remaining = Long.MAX_VALUE;
+		if (options.maxPropositionsPerClause > 0) {
+			remaining = Math.min(remaining, options.maxPropositionsPerClause
+					- clausePropositions);
+		}
+		if (options.maxPropositionsPerSentence > 0 && !xcomp) {
+			remaining = Math.min(remaining, options.maxPropositionsPerSentence
+					- sentencePropositions);
+		}
+		return remaining;
+	}
+
+	/**
+	 * Selects an alternative for each included constituent starting at
+	 * position {@code i} and generates a proposition once all constituents
+	 * have been selected. The included constituents are given by
+	 * {@code wideInclude} if not null, else by the mask {@code include}.
+	 * Returns false if generation stopped because the proposition budget has
+	 * been exhausted.
+	 */
+	private boolean selectConstituent(List<List<Constituent>> constituents,
+			Clause tempClause, int i, long include, BitSet wideInclude,
+			boolean xcomp, PropositionSink sink) {
+		if (i < constituents.size()) {
+			if (wideInclude != null ? wideInclude.get(i)
+					: (include & (1L << i)) != 0) {
+				List<Constituent> alternatives = constituents.get(i);
+				for (int j = 0; j < alternatives.size(); j++) {
+					Constituent alternative = alternatives.get(j);
+					if (tempClause.constituents.get(i) != alternative) {
+						tempClause.constituents.set(i, alternative);
+						// the layout depends on the verb and the adverbials
+						layoutChanged |= i == tempClause.verb
+								|| tempClause.adverbials.contains(i);
 					}
+					if (!selectConstituent(constituents, tempClause, i + 1,
+							include, wideInclude, xcomp, sink))
+						return false;
+				}
+				return true;
+			} else {
+				return selectConstituent(constituents, tempClause, i + 1,
+						include, wideInclude, xcomp, sink);
+			}
+		} else {
+			// everything selected; generate
+			if (remainingBudget(xcomp) <= 0) {
+				truncated = true;
+				return false;
+			}
+			if (layoutChanged) {
+				// e.g., a conjoined verb at another position than the
+				// detected one puts the adverbials on other sides of it
+				tempClause.computeLayout(options, getTokens());
+				layoutChanged = false;
+			}
+			if (wideInclude != null) {
+				propositionGenerator.generate(sink, tempClause, wideInclude);
+			} else {
+				propositionGenerator.generate(sink, tempClause, include);
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Clears the current sentence and replaces it by a sentence whose clauses
+	 * have been detected before (see {@link ClauseStore}). Propositions can
+	 * then be generated without parsing and clause detection. The options of
+	 * this instance must have the same detection key as the options
+	 * used to detect the clauses.
+	 */
+	public void loadClauses(ClauseStore.Record record) {
+		if (!record.detectionKey.equals(options.detectionKey())) {
+			throw new IllegalArgumentException(
+					"Clauses were detected with different clause detection options");
+		}
+		clear();
+		spans = record.spans;
+		semanticGraph = record.semanticGraph;
+		clauses.addAll(record.clauses);
+		score = record.score;
+		IndexedConstituent.sentSemanticGraph.set(semanticGraph);
+	}
+
+	// -- caching
+	// ---------------------------------------------------------------------------------
+
+	/**
+	 * Sets the cache used by {@link #extract(String, PropositionSink)}; null
+	 * disables caching. A cache may be shared by multiple ClausIE instances.
+	 */
+	public void setCache(PropositionCache cache) {
+		this.cache = cache;
+	}
+
+	/** Returns the cache used by {@link #extract(String, PropositionSink)}. */
+	public PropositionCache getCache() {
+		return cache;
+	}
+
+	/**
+	 * Parses a sentence, detects its clauses and passes its propositions to
+	 * {@code sink}. If a cache is set and contains the sentence (for the
+	 * current options), the cached propositions are passed to {@code sink}
+	 * without parsing; the semantic graph and the clauses of the sentence are
+	 * then not available. Returns true if the propositions came from the
+	 * cache.
+	 */
+	public boolean extract(String sentence, final PropositionSink sink) {
+		if (cache != null) {
+			PropositionCache.Entry entry = cache.get(sentence, options);
+			if (entry != null) {
+				clear();
+				score = entry.score;
+				truncated = entry.truncated;
+				for (Proposition p : entry.propositions) {
+					sink.add(p.clone());
 				}
-			}.run();
+				return true;
+			}
+		}
+		parse(sentence);
+		detectClauses();
+		if (cache == null) {
+			generatePropositions(sink);
+		} else {
+			final List<Proposition> generated = new ArrayList<Proposition>();
+			generatePropositions(new PropositionSink() {
+				@Override
+				public void add(Proposition proposition) {
+					generated.add(proposition);
+					sink.add(proposition);
+				}
+			});
+			cache.put(sentence, options, generated, score, truncated);
 		}
+		return false;
+	}
+
+	/**
+	 * Checks whether some propositions of the sentence were not generated
+	 * because the budget given by {@link Options#maxPropositionsPerClause} or
+	 * {@link Options#maxPropositionsPerSentence} was exceeded.
+	 */
+	public boolean isTruncated() {
+		return truncated;
 	}
 
 	public List<Proposition> getPropositions() {
@@ -319,7 +809,45 @@ public class ClausIE {
 		optionParser.accepts("h", "print help");
 		optionParser.accepts("s", "print sentence");
 		optionParser.accepts("p", "print sentence confidence");
-		OptionSet options;
+		optionParser
+				.accepts("model",
+						"parser model (.ser.gz, or a gunzipped copy to skip the decompression)")
+				.withRequiredArg().describedAs("file").ofType(String.class);
+		optionParser
+				.accepts("route",
+						"route sentences by length in tokens, e.g., 70:parse,120:split,200:cheap,*:skip")
+				.withRequiredArg().describedAs("tiers").ofType(String.class);
+		optionParser
+				.accepts("cheap-model",
+						"parser model used for tiers with action cheap")
+				.withRequiredArg().describedAs("file").ofType(String.class);
+		optionParser
+				.accepts("filter",
+						"skip sentences that cannot contain a clause without parsing them");
+		optionParser
+				.accepts("filter-recall",
+						"process all sentences but measure the recall of the filter of option filter");
+		optionParser
+				.accepts("pre-parsed",
+						"input lines are parse trees in Penn Treebank bracket notation instead of sentences");
+		optionParser
+				.accepts("parse-cache",
+						"cache the parses of up to the given number of sentences")
+				.withRequiredArg().describedAs("size").ofType(Integer.class);
+		optionParser
+				.accepts("cache",
+						"cache the propositions of up to the given number of sentences")
+				.withRequiredArg().describedAs("size").ofType(Integer.class);
+		optionParser
+				.accepts("save-clauses",
+						"store the detected clauses of each sentence in the given file")
+				.withRequiredArg().describedAs("file").ofType(String.class);
+		optionParser
+				.accepts("load-clauses",
+						"generate propositions from the clauses stored in the given file instead of parsing the input; "
+								+ "the clause detection options, including processCcAllVerbs and processCcNonVerbs, must be the same as when the file was saved")
+				.withRequiredArg().describedAs("file").ofType(String.class);
+		final OptionSet options;
 		try {
 			options = optionParser.parse(args);
 		} catch (OptionException e) {
@@ -332,6 +860,17 @@ public class ClausIE {
 		if (options.has("h")) {
 			optionParser.printHelpOn(System.out);
 		}
+		if ((options.has("filter") || options.has("filter-recall"))
+				&& (options.has("cache") || options.has("pre-parsed") || options
+						.has("load-clauses"))) {
+			System.err.println("Options filter and filter-recall cannot be used with cache, pre-parsed or load-clauses");
+			return;
+		}
+		if (options.has("cache")
+				&& (options.has("save-clauses") || options.has("load-clauses"))) {
+			System.err.println("Option cache cannot be used with save-clauses or load-clauses");
+			return;
+		}
 
 		// setup input and output
 		InputStream in = System.in;
@@ -346,86 +885,117 @@ public class ClausIE {
 		// is there an options file
 
 		// create a ClausIE instance and set options
-		ClausIE clausIE;
+		final ClausIE clausIE;
 		if (options.has("c")) {
 			clausIE = new ClausIE(new Options((String) options.valueOf("c")));
 		} else {
 			clausIE = new ClausIE();
 		}
-		clausIE.initParser();
+		// only the spans of the constituency tree are needed
+		clausIE.setRetainTree(false);
+		if (options.has("pre-parsed")) {
+			clausIE.setParserBackend(new PreParsedBackend());
+		} else if (!options.has("load-clauses")) {
+			if (options.has("model")) {
+				clausIE.initParser((String) options.valueOf("model"));
+			} else {
+				clausIE.initParser();
+			}
+		}
+		LengthRouter router = null;
+		if (options.has("route")) {
+			if (options.has("pre-parsed") || options.has("load-clauses")) {
+				System.err.println("Option route cannot be used with pre-parsed or load-clauses");
+				return;
+			}
+			ParserBackend cheapBackend = null;
+			if (options.has("cheap-model")) {
+				cheapBackend = PcfgParserBackend.load((String) options
+						.valueOf("cheap-model"));
+			}
+			router = new LengthRouter(clausIE.getParserBackend(), cheapBackend,
+					LengthRouter.parseTiers((String) options.valueOf("route")));
+			clausIE.setParserBackend(router);
+		}
+		if (options.has("parse-cache") && clausIE.getParserBackend() != null) {
+			clausIE.setParserBackend(new CachingParserBackend(clausIE
+					.getParserBackend(), (Integer) options.valueOf("parse-cache")));
+		}
+		if (options.has("cache")) {
+			clausIE.setCache(new PropositionCache((Integer) options
+					.valueOf("cache")));
+		}
 		if (options.has("v")) {
 			clausIE.getOptions().print(out, "# ");
 		}
 
 		// run
-		DataInput din = new DataInputStream(in);
-		PrintStream dout = new PrintStream(out);
-		int lineNo = 1;
-		for (String line = din.readLine(); line != null; line = din.readLine(), lineNo++) {
-			line = line.trim();
-			if (line.isEmpty() || line.startsWith("#"))
-				continue;
-			int sentenceId = lineNo;
-			if (options.has("l")) {
-				int tabIndex = line.indexOf('\t');
-				sentenceId = Integer.parseInt(line.substring(0, tabIndex));
-				line = line.substring(tabIndex + 1).trim();
-			}
-			if (options.has("v")) {
-				dout.print("# Line ");
-				dout.print(lineNo);
-				if (options.has("l")) {
-					dout.print(" (id ");
-					dout.print(sentenceId);
-					dout.print(")");
+		final PrintStream dout = new PrintStream(out);
+		final boolean printScore = options.has("p");
+		if (options.has("load-clauses")) {
+			ClauseStore.Reader reader = new ClauseStore.Reader(new FileInputStream(
+					(String) options.valueOf("load-clauses")));
+			for (ClauseStore.Record record = reader.read(); record != null; record = reader
+					.read()) {
+				if (options.has("v")) {
+					dout.print("# Sentence ");
+					dout.print(record.getId());
+					dout.print(": ");
+					dout.print(record.getSentence());
+					dout.println();
 				}
-				dout.print(": ");
-				dout.print(line);
-				dout.println();
-			}
-			clausIE.parse(line);
-			if (options.has("v")) {
-				dout.print("# Semantic graph: ");
-				dout.println(clausIE.getSemanticGraph().toFormattedString()
-						.replaceAll("\n", "\n#                ").trim());
-			}
-			clausIE.detectClauses();
-			if (options.has("v")) {
-				dout.print("#   Detected ");
-				dout.print(clausIE.getClauses().size());
-				dout.println(" clause(s).");
-				for (Clause clause : clausIE.getClauses()) {
-					dout.print("#   - ");
-					dout.print(clause.toString(clausIE.options));
+				clausIE.loadClauses(record);
+				if (options.has("v")) {
+					printClauses(clausIE, dout);
+				}
+				if (options.has("s")) {
+					dout.print(record.getSentence());
 					dout.println();
 				}
+				clausIE.generatePropositions(printingSink(record.getId(), clausIE,
+						dout, printScore));
+				if (options.has("v") && clausIE.isTruncated()) {
+					dout.println("#   Proposition budget exceeded; output truncated.");
+				}
 			}
-			clausIE.generatePropositions();
-			// dout.print("\t");
-			if (options.has("s")) {
-				dout.print(line);
-				dout.println();
+			reader.close();
+		} else {
+			LineProcessor processor = new LineProcessor(clausIE, dout);
+			processor.readIds = options.has("l");
+			processor.verbose = options.has("v");
+			processor.printSentence = options.has("s");
+			processor.printScore = printScore;
+			if (options.has("filter") || options.has("filter-recall")) {
+				processor.clauseFilter = new ClauseFilter(clausIE.getOptions());
+				processor.measureFilter = options.has("filter-recall");
 			}
-
-			// dout.print("\t");
-			// dout.println();
-			for (Proposition p : clausIE.getPropositions()) {
-				dout.print(sentenceId);
-				for (String c : p.constituents) {
-					// TODO: correct escaping
-					dout.print("\t\"");
-					dout.print(c);
-					dout.print("\"");
-				}
-				if (options.has("p")) {
-					dout.print("\t");
-					dout.print(clausIE.lpq.getPCFGScore());
-				}
-				dout.println();
+			if (options.has("save-clauses")) {
+				processor.clauseWriter = new ClauseStore.Writer(new FileOutputStream(
+						(String) options.valueOf("save-clauses")));
+			}
+			processor.process(new BufferedReader(new InputStreamReader(in, "UTF-8")));
+			if (processor.clauseWriter != null) {
+				processor.clauseWriter.close();
+			}
+			if (processor.clauseFilter != null
+					&& (options.has("v") || processor.measureFilter)) {
+				processor.clauseFilter.printStatistics(dout, "# ");
 			}
 		}
 
 		// shutdown
+		if (options.has("v") && clausIE.getCache() != null) {
+			dout.print("# Cache: ");
+			dout.println(clausIE.getCache());
+		}
+		if (options.has("v")
+				&& clausIE.getParserBackend() instanceof CachingParserBackend) {
+			dout.print("# Parse cache: ");
+			dout.println(clausIE.getParserBackend());
+		}
+		if (options.has("v") && router != null) {
+			router.printStatistics(dout, "# ");
+		}
 		if (options.has("f")) {
 			in.close();
 		}
@@ -433,4 +1003,42 @@ public class ClausIE {
 			out.close();
 		}
 	}
+
+	/** Prints the clauses of the current sentence (verbose output). */
+	static void printClauses(ClausIE clausIE, PrintStream dout) {
+		dout.print("#   Detected ");
+		dout.print(clausIE.getClauses().size());
+		dout.println(" clause(s).");
+		for (Clause clause : clausIE.getClauses()) {
+			dout.print("#   - ");
+			dout.print(clause.toString(clausIE.options));
+			dout.println();
+		}
+	}
+
+	/**
+	 * Returns a sink that prints each proposition of sentence {@code id} as a
+	 * line of tab-separated fields.
+	 */
+	static PropositionSink printingSink(final int id,
+			final ClausIE clausIE, final PrintStream dout,
+			final boolean printScore) {
+		return new PropositionSink() {
+			@Override
+			public void add(Proposition p) {
+				dout.print(id);
+				for (Phrase c : p.constituents) {
+					// TODO: correct escaping
+					dout.print("\t\"");
+					c.print(dout);
+					dout.print("\"");
+				}
+				if (printScore) {
+					dout.print("\t");
+					dout.print(clausIE.getScore());
+				}
+				dout.println();
+			}
+		};
+	}
 }
@@ -0,0 +1,131 @@
+package de.mpii.clausie;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+
+import joptsimple.OptionException;
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+
+/** Command-line client of {@link ClausIEDaemon}. Takes the same input and produces the same output
+ * as the command-line interface of {@link ClausIE}, but leaves parsing to a running daemon.
+ *
+ * @date $ $
+ * @version $ $ */
+public class ClausIEClient {
+
+	private ClausIEClient() {
+	}
+
+	/** Copies all bytes from {@code in} to {@code out} */
+	private static void copy(InputStream in, OutputStream out) throws IOException {
+		byte[] buffer = new byte[8192];
+		for (int n = in.read(buffer); n >= 0; n = in.read(buffer)) {
+			out.write(buffer, 0, n);
+		}
+		out.flush();
+	}
+
+	/** Sends the input to the daemon on the given local port and writes its output to {@code out};
+	 * {@code flags} are the flags of the header line (see {@link ClausIEDaemon}) */
+	public static void process(int port, String flags, final InputStream in, OutputStream out)
+			throws IOException {
+		final Socket socket = new Socket(InetAddress.getByName(null), port);
+		try {
+			final OutputStream sout = socket.getOutputStream();
+			sout.write((ClausIEDaemon.PROTOCOL + " " + flags + "\n").getBytes("US-ASCII"));
+
+			// send the input while the output is being received
+			final IOException[] sendError = new IOException[1];
+			Thread sender = new Thread() {
+				@Override
+				public void run() {
+					try {
+						copy(in, sout);
+						socket.shutdownOutput();
+					} catch (IOException e) {
+						sendError[0] = e;
+					}
+				}
+			};
+			sender.start();
+			copy(socket.getInputStream(), out);
+			try {
+				sender.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if (sendError[0] != null) {
+				throw sendError[0];
+			}
+		} finally {
+			socket.close();
+		}
+	}
+
+	// -- command-line interface
+	// ------------------------------------------------------------------
+
+	public static void main(String[] args) throws IOException {
+		OptionParser optionParser = new OptionParser();
+		optionParser
+				.accepts("f", "input file (if absent, reads from stdin)")
+				.withRequiredArg().describedAs("file").ofType(String.class);
+		optionParser
+				.accepts("l",
+						"if set, sentence identifier is read from input file (with lines of form: <id>\\t<sentence>)");
+		optionParser
+				.accepts("o", "output file (if absent, writes to stdout)")
+				.withRequiredArg().describedAs("file").ofType(String.class);
+		optionParser
+				.accepts("port", "port of the daemon (default: " + ClausIEDaemon.DEFAULT_PORT + ")")
+				.withRequiredArg().describedAs("port").ofType(Integer.class);
+		optionParser.accepts("v", "verbose output");
+		optionParser.accepts("h", "print help");
+		optionParser.accepts("s", "print sentence");
+		optionParser.accepts("p", "print sentence confidence");
+		final OptionSet options;
+		try {
+			options = optionParser.parse(args);
+		} catch (OptionException e) {
+			System.err.println(e.getMessage());
+			optionParser.printHelpOn(System.out);
+			return;
+		}
+		if (options.has("h")) {
+			optionParser.printHelpOn(System.out);
+			return;
+		}
+
+		StringBuilder flags = new StringBuilder();
+		for (String flag : new String[] { "l", "v", "s", "p" }) {
+			if (options.has(flag)) {
+				flags.append(flag);
+			}
+		}
+		int port = ClausIEDaemon.DEFAULT_PORT;
+		if (options.has("port")) {
+			port = (Integer) options.valueOf("port");
+		}
+		InputStream in = System.in;
+		OutputStream out = System.out;
+		if (options.has("f")) {
+			in = new FileInputStream((String) options.valueOf("f"));
+		}
+		if (options.has("o")) {
+			out = new FileOutputStream((String) options.valueOf("o"));
+		}
+		process(port, flags.toString(), in, out);
+		if (options.has("f")) {
+			in.close();
+		}
+		if (options.has("o")) {
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,252 @@
+package de.mpii.clausie;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import joptsimple.OptionException;
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+
+/** A long-running ClausIE process that serves clients on a local port, so that the parser model
+ * is loaded once instead of once per invocation.
+ *
+ * The daemon keeps a pool of workers that share the parser model but parse with their own parser
+ * query ({@link ClausIE#ClausIE(ClausIE, Options)}); each connection is served by one worker.
+ * A connection uses the line format of the command-line interface ({@link LineProcessor}): the
+ * client sends a header line <code>CLAUSIE/1 [flags]</code>, followed by the input lines, and
+ * then closes its side of the connection; the daemon answers with the output lines and closes the
+ * connection. The flags are any of the letters <code>l</code>, <code>v</code>, <code>s</code> and
+ * <code>p</code> and have the same meaning as the command-line options of {@link ClausIE}. Both
+ * directions are encoded in UTF-8. {@link ClausIEClient} implements the client side.
+ *
+ * The daemon only accepts connections from the local host.
+ *
+ * @date $ $
+ * @version $ $ */
+public class ClausIEDaemon {
+
+	/** Port used if none is given */
+	public static final int DEFAULT_PORT = 7075;
+
+	/** First word of the header line of a connection */
+	static final String PROTOCOL = "CLAUSIE/1";
+
+	/** Socket on which connections are accepted */
+	private final ServerSocket serverSocket;
+
+	/** Threads that serve connections, one per worker */
+	private final ExecutorService executor;
+
+	/** Idle workers */
+	private final BlockingQueue<ClausIE> workers;
+
+	/** Creates a daemon with the given number of workers on the given local port (0 for any free
+	 * port); the workers share the model of {@code parser}, which must have been initialized, and
+	 * use copies of its options */
+	public ClausIEDaemon(ClausIE parser, int noWorkers, int port) throws IOException {
+		if (noWorkers <= 0) {
+			throw new IllegalArgumentException("Number of workers must be positive");
+		}
+		workers = new ArrayBlockingQueue<ClausIE>(noWorkers);
+		for (int i=0; i<noWorkers; i++) {
+			workers.add(new ClausIE(parser, new Options(parser.getOptions())));
+		}
+		executor = Executors.newFixedThreadPool(noWorkers);
+		serverSocket = new ServerSocket(port, 50, InetAddress.getByName(null));
+	}
+
+	/** Returns the port on which the daemon accepts connections */
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/** Accepts and serves connections until {@link #close()} is called */
+	public void run() throws IOException {
+		while (!serverSocket.isClosed()) {
+			final Socket socket;
+			try {
+				socket = serverSocket.accept();
+			} catch (SocketException e) {
+				// closed
+				break;
+			}
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					serve(socket);
+				}
+			});
+		}
+	}
+
+	/** Stops accepting connections; connections that have been accepted are still served */
+	public void close() throws IOException {
+		serverSocket.close();
+		executor.shutdown();
+	}
+
+	/** Serves a connection */
+	private void serve(Socket socket) {
+		try {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(
+					socket.getInputStream(), "UTF-8"));
+			PrintStream dout = new PrintStream(new BufferedOutputStream(socket.getOutputStream()),
+					false, "UTF-8");
+			try {
+				String header = reader.readLine();
+				if (header == null) {
+					return;
+				}
+				String[] fields = header.trim().split(" ");
+				if (!PROTOCOL.equals(fields[0])) {
+					dout.println("# Error: unsupported protocol " + fields[0]);
+					return;
+				}
+				String flags = fields.length > 1 ? fields[1] : "";
+				ClausIE clausIE = workers.take();
+				try {
+					LineProcessor processor = new LineProcessor(clausIE, dout);
+					processor.readIds = flags.indexOf('l') >= 0;
+					processor.verbose = flags.indexOf('v') >= 0;
+					processor.printSentence = flags.indexOf('s') >= 0;
+					processor.printScore = flags.indexOf('p') >= 0;
+					if (processor.verbose) {
+						clausIE.getOptions().print(dout, "# ");
+					}
+					processor.process(reader);
+				} catch (RuntimeException e) {
+					// report to the client and keep the daemon running
+					dout.println("# Error: " + e);
+				} finally {
+					clausIE.clear();
+					workers.put(clausIE);
+				}
+			} finally {
+				dout.flush();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (IOException e) {
+			System.err.println("Connection failed: " + e.getMessage());
+		} finally {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				// ignore
+			}
+		}
+	}
+
+	// -- command-line interface
+	// ------------------------------------------------------------------
+
+	public static void main(String[] args) throws IOException {
+		OptionParser optionParser = new OptionParser();
+		optionParser
+				.accepts("port", "local port (default: " + DEFAULT_PORT + ")")
+				.withRequiredArg().describedAs("port").ofType(Integer.class);
+		optionParser
+				.accepts("workers", "number of workers (default: number of processors)")
+				.withRequiredArg().describedAs("n").ofType(Integer.class);
+		optionParser.accepts("c", "configuration file").withRequiredArg()
+				.describedAs("file").ofType(String.class);
+		optionParser
+				.accepts("model", "parser model (.ser.gz, or a gunzipped copy to skip the decompression)")
+				.withRequiredArg().describedAs("file").ofType(String.class);
+		optionParser
+				.accepts("cache", "cache the propositions of up to the given number of sentences")
+				.withRequiredArg().describedAs("size").ofType(Integer.class);
+		optionParser
+				.accepts("parse-memory",
+						"limit the estimated memory of concurrent parses to the given number of megabytes; "
+								+ "the parser chart of a worker is then replaced as with recycle-chart (default: "
+								+ ParseAdmission.DEFAULT_RETAIN_TOKENS + " tokens)")
+				.withRequiredArg().describedAs("MB").ofType(Integer.class);
+		optionParser
+				.accepts("recycle-chart",
+						"replace the parser chart of a worker after a sentence with more than the given number of tokens")
+				.withRequiredArg().describedAs("tokens").ofType(Integer.class);
+		optionParser.accepts("h", "print help");
+		final OptionSet options;
+		try {
+			options = optionParser.parse(args);
+		} catch (OptionException e) {
+			System.err.println(e.getMessage());
+			optionParser.printHelpOn(System.out);
+			return;
+		}
+		if (options.has("h")) {
+			optionParser.printHelpOn(System.out);
+			return;
+		}
+
+		final ClausIE parser;
+		if (options.has("c")) {
+			parser = new ClausIE(new Options((String) options.valueOf("c")));
+		} else {
+			parser = new ClausIE();
+		}
+		// only the spans of the constituency tree are needed
+		parser.setRetainTree(false);
+		if (options.has("model")) {
+			parser.initParser((String) options.valueOf("model"));
+		} else {
+			parser.initParser();
+		}
+		if (options.has("parse-memory")
+				&& parser.getParserBackend() instanceof PcfgParserBackend) {
+			int retainTokens = ParseAdmission.DEFAULT_RETAIN_TOKENS;
+			if (options.has("recycle-chart")) {
+				retainTokens = (Integer) options.valueOf("recycle-chart");
+				if (retainTokens <= 0) {
+					System.err.println("Option recycle-chart must be positive with parse-memory");
+					return;
+				}
+			}
+			PcfgParserBackend backend = (PcfgParserBackend) parser.getParserBackend();
+			backend.setAdmission(new ParseAdmission(
+					((Integer) options.valueOf("parse-memory")).longValue() << 20,
+					backend.getParser(), retainTokens));
+		}
+		if (options.has("recycle-chart")
+				&& parser.getParserBackend() instanceof PcfgParserBackend) {
+			((PcfgParserBackend) parser.getParserBackend()).setRecycleTokens((Integer) options
+					.valueOf("recycle-chart"));
+		}
+		if (parser.getParserBackend() instanceof PcfgParserBackend) {
+			final ParserBackend backend = parser.getParserBackend();
+			Runtime.getRuntime().addShutdownHook(new Thread() {
+				@Override
+				public void run() {
+					System.err.println("Parser: " + backend);
+				}
+			});
+		}
+		if (options.has("cache")) {
+			parser.setCache(new PropositionCache((Integer) options.valueOf("cache")));
+		}
+		int noWorkers = Runtime.getRuntime().availableProcessors();
+		if (options.has("workers")) {
+			noWorkers = (Integer) options.valueOf("workers");
+		}
+		int port = DEFAULT_PORT;
+		if (options.has("port")) {
+			port = (Integer) options.valueOf("port");
+		}
+		ClausIEDaemon daemon = new ClausIEDaemon(parser, noWorkers, port);
+		System.err.println("ClausIE daemon listening on localhost:" + daemon.getPort()
+				+ " with " + noWorkers + " worker(s)");
+		daemon.run();
+	}
+}
@@ -0,0 +1,556 @@
+package de.mpii.clausie;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+import joptsimple.OptionException;
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/** An HTTP server that extracts propositions from the sentences it receives.
+ *
+ * Sentences are posted to <code>/extract</code> as plain text (UTF-8), one sentence per line;
+ * empty lines and lines starting with <code>#</code> are skipped. A request may contain a single
+ * sentence or a batch of sentences. The sentences of all requests are put into a shared queue,
+ * from which a fixed number of workers take them one at a time, so that the sentences of a
+ * request are spread over all idle workers. The queue is bounded: a request whose sentences do not fit is rejected
+ * with status 429 (413 if it could never fit).
+ *
+ * The response is a JSON array with one object per sentence, in input order, of the form
+ * <pre>
+ * {"id":1,"sentence":"...","profile":"full","score":-41.1,"truncated":false,"propositions":[["s","v","o"],...]}
+ * </pre>
+ * where <code>id</code> is the line number of the sentence in the request and <code>profile</code>
+ * the {@link Options.Profile} used. The array is streamed: each sentence is sent as soon as it and
+ * all sentences before it have been processed.
+ *
+ * If a latency target is set ({@link #setLatencyTarget(long)}), the server degrades under load.
+ * When a request is admitted, the current queue latency is measured as the larger of the recent
+ * average time that sentences waited in the queue and the time the oldest queued sentence has
+ * been waiting (0 if no sentence is pending). All sentences of the request are processed with the
+ * <code>fast</code> profile if that latency exceeds the target, with the <code>minimal</code>
+ * profile if it exceeds twice the target, and with the <code>full</code> profile, i.e., the
+ * options of the server, otherwise.
+ *
+ * The server only accepts connections from the local host.
+ *
+ * @date $ $
+ * @version $ $ */
+public class ClausIEHttpServer {
+
+	/** Port used if none is given */
+	public static final int DEFAULT_PORT = 7076;
+
+	/** Default maximum number of queued sentences */
+	public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+	/** A sentence to be processed */
+	private static final class Job {
+		final int id;
+		final String sentence;
+
+		/** Counted down once {@link #json} has been set */
+		final CountDownLatch done = new CountDownLatch(1);
+
+		/** Time at which the sentence was queued ({@link System#nanoTime()}) */
+		long queued;
+
+		/** Profile with which the sentence is processed, chosen for its request */
+		Options.Profile profile = Options.Profile.FULL;
+
+		/** Result as a JSON object */
+		String json;
+
+		Job(int id, String sentence) {
+			this.id = id;
+			this.sentence = sentence;
+		}
+
+		/** Processes the sentence with the options of {@code clausIE}, which are those of
+		 * {@link #profile}, and sets the result */
+		void run(ClausIE clausIE) {
+			StringBuilder sb = new StringBuilder();
+			try {
+				final List<Proposition> propositions = new ArrayList<Proposition>();
+				clausIE.extract(sentence, new PropositionSink() {
+					@Override
+					public void add(Proposition proposition) {
+						propositions.add(proposition);
+					}
+				});
+				sb.append("{\"id\":").append(id);
+				sb.append(",\"sentence\":");
+				quote(sentence, sb);
+				sb.append(",\"profile\":");
+				quote(profile.toString(), sb);
+				sb.append(",\"score\":");
+				double score = clausIE.getScore();
+				if (Double.isNaN(score) || Double.isInfinite(score)) {
+					sb.append("null");
+				} else {
+					sb.append(score);
+				}
+				sb.append(",\"truncated\":").append(clausIE.isTruncated());
+				sb.append(",\"propositions\":[");
+				for (int i = 0; i < propositions.size(); i++) {
+					Proposition p = propositions.get(i);
+					if (i > 0) sb.append(',');
+					sb.append('[');
+					for (int j = 0; j < p.noConstituents(); j++) {
+						if (j > 0) sb.append(',');
+						quote(p.constituent(j).toString(), sb);
+					}
+					sb.append(']');
+				}
+				sb.append("]}");
+			} catch (LengthRouter.SkippedException e) {
+				sb.setLength(0);
+				sb.append("{\"id\":").append(id);
+				sb.append(",\"sentence\":");
+				quote(sentence, sb);
+				sb.append(",\"profile\":");
+				quote(profile.toString(), sb);
+				sb.append(",\"skipped\":true}");
+			} catch (Throwable e) {
+				// also errors such as an OutOfMemoryError on a long sentence, so that the
+				// response stays well-formed
+				sb.setLength(0);
+				appendError(e, sb);
+			} finally {
+				complete(sb.toString());
+				clausIE.clear();
+			}
+		}
+
+		/** Sets an error as the result unless the result has been set already */
+		void fail(Throwable e) {
+			StringBuilder sb = new StringBuilder();
+			appendError(e, sb);
+			complete(sb.toString());
+		}
+
+		/** Sets the result unless it has been set already */
+		private synchronized void complete(String json) {
+			if (done.getCount() > 0) {
+				this.json = json;
+				done.countDown();
+			}
+		}
+
+		/** Appends the result for an error */
+		private void appendError(Throwable e, StringBuilder sb) {
+			sb.append("{\"id\":").append(id);
+			sb.append(",\"sentence\":");
+			quote(sentence, sb);
+			sb.append(",\"profile\":");
+			quote(profile.toString(), sb);
+			sb.append(",\"error\":");
+			quote(e.toString(), sb);
+			sb.append('}');
+		}
+	}
+
+	/** Takes sentences from the queue and processes them */
+	private final class Worker implements Runnable {
+		private final ClausIE clausIE;
+
+		/** Options of each profile, indexed by ordinal */
+		private final Options[] profileOptions;
+
+		Worker(ClausIE clausIE) {
+			this.clausIE = clausIE;
+			Options.Profile[] profiles = Options.Profile.values();
+			profileOptions = new Options[profiles.length];
+			for (int i = 0; i < profiles.length; i++) {
+				profileOptions[i] = profiles[i].apply(clausIE.getOptions());
+			}
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				Job job;
+				try {
+					job = queue.take();
+				} catch (InterruptedException e) {
+					return;
+				}
+				recordWait(System.nanoTime() - job.queued);
+				try {
+					clausIE.setOptions(profileOptions[job.profile.ordinal()]);
+					job.run(clausIE);
+				} catch (Throwable e) {
+					// keep the worker alive and answer the sentence
+					job.fail(e);
+				} finally {
+					permits.release();
+				}
+			}
+		}
+	}
+
+	/** Handles requests to <code>/extract</code> */
+	private final class ExtractHandler implements HttpHandler {
+		@Override
+		public void handle(HttpExchange exchange) throws IOException {
+			try {
+				if (!"POST".equals(exchange.getRequestMethod())) {
+					send(exchange, 405, "Use POST");
+					return;
+				}
+
+				// read sentences
+				List<Job> jobs = new ArrayList<Job>();
+				BufferedReader in = new BufferedReader(new InputStreamReader(
+						exchange.getRequestBody(), "UTF-8"));
+				int lineNo = 1;
+				for (String line = in.readLine(); line != null; line = in.readLine(), lineNo++) {
+					line = line.trim();
+					if (line.isEmpty() || line.startsWith("#"))
+						continue;
+					if (jobs.size() == queueCapacity) {
+						// stop reading a request that can never fit
+						send(exchange, 413, "Batch larger than queue capacity (" + queueCapacity
+								+ ")");
+						return;
+					}
+					jobs.add(new Job(lineNo, line));
+				}
+
+				// enqueue; the profile is chosen before the sentences of this request are queued
+				Options.Profile profile = selectProfile(queueLatency());
+				if (!permits.tryAcquire(jobs.size())) {
+					exchange.getResponseHeaders().set("Retry-After", "1");
+					send(exchange, 429, "Queue full");
+					return;
+				}
+				long now = System.nanoTime();
+				for (Job job : jobs) {
+					job.queued = now;
+					job.profile = profile;
+				}
+				queue.addAll(jobs);
+				if (stopped) {
+					// the server stopped while the sentences were queued
+					failQueued();
+				}
+
+				// stream results
+				exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+				exchange.sendResponseHeaders(200, 0);
+				Writer out = new OutputStreamWriter(exchange.getResponseBody(), "UTF-8");
+				out.write('[');
+				for (int i = 0; i < jobs.size(); i++) {
+					Job job = jobs.get(i);
+					try {
+						job.done.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						break;
+					}
+					out.write(i > 0 ? ",\n" : "\n");
+					out.write(job.json);
+					out.flush();
+				}
+				out.write("\n]\n");
+				out.close();
+			} finally {
+				exchange.close();
+			}
+		}
+	}
+
+	/** Sentences waiting to be processed */
+	private final BlockingQueue<Job> queue = new LinkedBlockingQueue<Job>();
+
+	/** One permit per free slot of {@link #queue}; released once a sentence has been processed */
+	private final Semaphore permits;
+
+	/** Maximum number of queued sentences */
+	private final int queueCapacity;
+
+	/** Queue latency in nanoseconds above which requests are processed with a cheaper profile
+	 * (0 to always use the full profile) */
+	private volatile long latencyTarget = 0;
+
+	/** Whether {@link #stop(int)} has been called */
+	private volatile boolean stopped = false;
+
+	/** Moving average of the time recent sentences waited in the queue in nanoseconds */
+	private long recentWait = 0;
+
+	private final HttpServer server;
+	private final ExecutorService workerExecutor;
+	private final ExecutorService requestExecutor;
+
+	/** Creates a server on the given local port (0 for any free port); the workers share the
+	 * model of {@code parser}, which must have been initialized, and use copies of its options */
+	public ClausIEHttpServer(ClausIE parser, int noWorkers, int port, int queueCapacity)
+			throws IOException {
+		if (noWorkers <= 0 || queueCapacity <= 0) {
+			throw new IllegalArgumentException(
+					"Number of workers and queue capacity must be positive");
+		}
+		this.queueCapacity = queueCapacity;
+		permits = new Semaphore(queueCapacity);
+		workerExecutor = Executors.newFixedThreadPool(noWorkers);
+		for (int i = 0; i < noWorkers; i++) {
+			workerExecutor.execute(new Worker(new ClausIE(parser, new Options(parser
+					.getOptions()))));
+		}
+		requestExecutor = Executors.newCachedThreadPool();
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getByName(null), port), 0);
+		server.createContext("/extract", new ExtractHandler());
+		server.setExecutor(requestExecutor);
+	}
+
+	/** Sets the queue latency in milliseconds above which requests are processed with a cheaper
+	 * profile; 0 to always use the full profile */
+	public void setLatencyTarget(long millis) {
+		if (millis < 0) {
+			throw new IllegalArgumentException("Latency target must not be negative");
+		}
+		latencyTarget = millis * 1000000;
+	}
+
+	/** Records the time a sentence waited in the queue in nanoseconds */
+	private synchronized void recordWait(long waited) {
+		recentWait = recentWait - recentWait / 8 + waited / 8;
+	}
+
+	/** Returns the current queue latency in nanoseconds: the larger of the recent average wait
+	 * and the wait of the oldest queued sentence, or 0 if no sentence is pending */
+	private long queueLatency() {
+		if (permits.availablePermits() == queueCapacity) {
+			return 0;
+		}
+		long latency;
+		synchronized (this) {
+			latency = recentWait;
+		}
+		Job oldest = queue.peek();
+		if (oldest != null) {
+			latency = Math.max(latency, System.nanoTime() - oldest.queued);
+		}
+		return latency;
+	}
+
+	/** Returns the profile for a request admitted at the given queue latency in nanoseconds */
+	private Options.Profile selectProfile(long latency) {
+		long target = latencyTarget;
+		if (target <= 0 || latency <= target) {
+			return Options.Profile.FULL;
+		} else if (latency <= 2 * target) {
+			return Options.Profile.FAST;
+		} else {
+			return Options.Profile.MINIMAL;
+		}
+	}
+
+	/** Returns the port on which the server accepts connections */
+	public int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/** Starts accepting requests */
+	public void start() {
+		server.start();
+	}
+
+	/** Stops the server; requests in progress are given the given number of seconds to complete.
+	 * Sentences that are still queued afterwards are answered with an error. */
+	public void stop(int delay) {
+		server.stop(delay);
+		stopped = true;
+		requestExecutor.shutdown();
+		workerExecutor.shutdownNow();
+		failQueued();
+	}
+
+	/** Answers all queued sentences with an error */
+	private void failQueued() {
+		List<Job> jobs = new ArrayList<Job>();
+		queue.drainTo(jobs);
+		for (Job job : jobs) {
+			job.fail(new IllegalStateException("Server stopped"));
+			permits.release();
+		}
+	}
+
+	/** Sends a plain-text response */
+	private static void send(HttpExchange exchange, int status, String message) throws IOException {
+		byte[] body = (message + "\n").getBytes("UTF-8");
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+		exchange.sendResponseHeaders(status, body.length);
+		OutputStream out = exchange.getResponseBody();
+		out.write(body);
+		out.close();
+	}
+
+	/** Appends the given string as a JSON string literal */
+	static void quote(String s, StringBuilder sb) {
+		sb.append('"');
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			switch (c) {
+			case '"':
+				sb.append("\\\"");
+				break;
+			case '\\':
+				sb.append("\\\\");
+				break;
+			case '\n':
+				sb.append("\\n");
+				break;
+			case '\r':
+				sb.append("\\r");
+				break;
+			case '\t':
+				sb.append("\\t");
+				break;
+			default:
+				if (c < 0x20) {
+					sb.append(String.format("\\u%04x", (int) c));
+				} else {
+					sb.append(c);
+				}
+			}
+		}
+		sb.append('"');
+	}
+
+	// -- command-line interface
+	// ------------------------------------------------------------------
+
+	public static void main(String[] args) throws IOException {
+		OptionParser optionParser = new OptionParser();
+		optionParser
+				.accepts("port", "local port (default: " + DEFAULT_PORT + ")")
+				.withRequiredArg().describedAs("port").ofType(Integer.class);
+		optionParser
+				.accepts("workers", "number of workers (default: number of processors)")
+				.withRequiredArg().describedAs("n").ofType(Integer.class);
+		optionParser
+				.accepts("queue",
+						"maximum number of queued sentences (default: " + DEFAULT_QUEUE_CAPACITY + ")")
+				.withRequiredArg().describedAs("n").ofType(Integer.class);
+		optionParser.accepts("c", "configuration file").withRequiredArg()
+				.describedAs("file").ofType(String.class);
+		optionParser
+				.accepts("model", "parser model (.ser.gz, or a gunzipped copy to skip the decompression)")
+				.withRequiredArg().describedAs("file").ofType(String.class);
+		optionParser
+				.accepts("cache", "cache the propositions of up to the given number of sentences")
+				.withRequiredArg().describedAs("size").ofType(Integer.class);
+		optionParser
+				.accepts("parse-memory",
+						"limit the estimated memory of concurrent parses to the given number of megabytes; "
+								+ "the parser chart of a worker is then replaced as with recycle-chart (default: "
+								+ ParseAdmission.DEFAULT_RETAIN_TOKENS + " tokens)")
+				.withRequiredArg().describedAs("MB").ofType(Integer.class);
+		optionParser
+				.accepts("recycle-chart",
+						"replace the parser chart of a worker after a sentence with more than the given number of tokens")
+				.withRequiredArg().describedAs("tokens").ofType(Integer.class);
+		optionParser
+				.accepts("latency-target",
+						"process requests with a cheaper profile while the queue latency exceeds the given number of milliseconds")
+				.withRequiredArg().describedAs("ms").ofType(Long.class);
+		optionParser.accepts("h", "print help");
+		final OptionSet options;
+		try {
+			options = optionParser.parse(args);
+		} catch (OptionException e) {
+			System.err.println(e.getMessage());
+			optionParser.printHelpOn(System.out);
+			return;
+		}
+		if (options.has("h")) {
+			optionParser.printHelpOn(System.out);
+			return;
+		}
+
+		final ClausIE parser;
+		if (options.has("c")) {
+			parser = new ClausIE(new Options((String) options.valueOf("c")));
+		} else {
+			parser = new ClausIE();
+		}
+		// only the spans of the constituency tree are needed
+		parser.setRetainTree(false);
+		if (options.has("model")) {
+			parser.initParser((String) options.valueOf("model"));
+		} else {
+			parser.initParser();
+		}
+		if (options.has("parse-memory")
+				&& parser.getParserBackend() instanceof PcfgParserBackend) {
+			int retainTokens = ParseAdmission.DEFAULT_RETAIN_TOKENS;
+			if (options.has("recycle-chart")) {
+				retainTokens = (Integer) options.valueOf("recycle-chart");
+				if (retainTokens <= 0) {
+					System.err.println("Option recycle-chart must be positive with parse-memory");
+					return;
+				}
+			}
+			PcfgParserBackend backend = (PcfgParserBackend) parser.getParserBackend();
+			backend.setAdmission(new ParseAdmission(
+					((Integer) options.valueOf("parse-memory")).longValue() << 20,
+					backend.getParser(), retainTokens));
+		}
+		if (options.has("recycle-chart")
+				&& parser.getParserBackend() instanceof PcfgParserBackend) {
+			((PcfgParserBackend) parser.getParserBackend()).setRecycleTokens((Integer) options
+					.valueOf("recycle-chart"));
+		}
+		if (parser.getParserBackend() instanceof PcfgParserBackend) {
+			final ParserBackend backend = parser.getParserBackend();
+			Runtime.getRuntime().addShutdownHook(new Thread() {
+				@Override
+				public void run() {
+					System.err.println("Parser: " + backend);
+				}
+			});
+		}
+		if (options.has("cache")) {
+			parser.setCache(new PropositionCache((Integer) options.valueOf("cache")));
+		}
+		int noWorkers = Runtime.getRuntime().availableProcessors();
+		if (options.has("workers")) {
+			noWorkers = (Integer) options.valueOf("workers");
+		}
+		int port = DEFAULT_PORT;
+		if (options.has("port")) {
+			port = (Integer) options.valueOf("port");
+		}
+		int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+		if (options.has("queue")) {
+			queueCapacity = (Integer) options.valueOf("queue");
+		}
+		ClausIEHttpServer server = new ClausIEHttpServer(parser, noWorkers, port, queueCapacity);
+		if (options.has("latency-target")) {
+			server.setLatencyTarget((Long) options.valueOf("latency-target"));
+		}
+		server.start();
+		System.err.println("ClausIE HTTP server listening on http://localhost:" + server.getPort()
+				+ "/extract with " + noWorkers + " worker(s)");
+	}
+}
@@ -1,6 +1,8 @@
 package de.mpii.clausie;
 
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import de.mpii.clausie.Constituent.Flag;
@@ -10,8 +12,13 @@ import edu.stanford.nlp.ling.IndexedWord;
 /**
  * A clause is a basic unit of a sentence. In ClausIE, a clause consists of a
  * set of constituents (at least a subject and a verb) and a type.
+ * 
+ * Clauses can be serialized (see {@link ClauseStore}); the layout is not
+ * serialized and recomputed when needed.
  */
-public class Clause {
+public class Clause implements Serializable {
+	private static final long serialVersionUID = 1L;
+
 	// -- Type definition
 	// -------------------------------------------------------------------------
 
@@ -40,25 +47,25 @@ public class Clause {
 	// e.g., more than one dobj produced by parser for
 	// "The man who I told the fact is dead."
 	/** Position(s) of direct object(s) in {@link #constituents}. */
-	List<Integer> dobjects = new ArrayList<Integer>();
+	IntList dobjects = new IntList();
 
 	/** Position(s) of indirect object in {@link #constituents} */
-	List<Integer> iobjects = new ArrayList<Integer>();
+	IntList iobjects = new IntList();
 
 	/** Position of complement in {@link #constituents} (for SVC / SVOC) */
 	int complement = -1;
 
 	/** Position(s) of xcomps in {@link #constituents} */
-	List<Integer> xcomps = new ArrayList<Integer>();
+	IntList xcomps = new IntList();
 
 	/** Position(s) of ccomps in {@link #constituents} */
-	List<Integer> ccomps = new ArrayList<Integer>();
+	IntList ccomps = new IntList();
 
 	/** Position(s) of acomps in {@link #constituents} */
-	List<Integer> acomps = new ArrayList<Integer>();
+	IntList acomps = new IntList();
 
 	/** Position(s) of adverbials in {@link #constituents} */
-	List<Integer> adverbials = new ArrayList<Integer>();
+	IntList adverbials = new IntList();
 
 	/** If a relative pronoun refers to an adverbial */
 	boolean relativeAdverbial = false;
@@ -73,6 +80,34 @@ public class Clause {
 	/** Agent (for passive voice). Currently unused. */
 	IndexedWord agent;
 
+	// -- layout (computed once by {@link #computeLayout(Options, SentenceTokens)})
+	// ------------------------------------------------------------------
+
+	/** Options for which the layout has been computed */
+	transient Options layoutOptions;
+
+	/** Flag of each constituent, see {@link #getFlag(int, Options)} */
+	transient Flag[] flags;
+
+	/** Bit i is set if constituent i is required (for i < {@link Long#SIZE}) */
+	transient long requiredMask;
+
+	/** Bit i is set if constituent i is optional (for i < {@link Long#SIZE}) */
+	transient long optionalMask;
+
+	/**
+	 * Positions of the arguments (objects, complements and adverbials) in
+	 * {@link #constituents} in increasing order; adverbials that occur before
+	 * the verb are not included
+	 */
+	transient int[] arguments;
+
+	/**
+	 * Positions of the adverbials in {@link #constituents} that occur before
+	 * the verb in increasing order
+	 */
+	transient int[] adverbialsBeforeVerb;
+
 	// -- construction
 	// ----------------------------------------------------------------------------
 
@@ -80,6 +115,63 @@ public class Clause {
 	Clause() {
 	};
 
+	/**
+	 * Resets this clause to the state of a newly created clause; the
+	 * allocated lists are kept so that the clause can be reused (see
+	 * {@link ClausIE#newClause()}).
+	 */
+	void reset() {
+		constituents.clear();
+		type = Type.UNKNOWN;
+		subject = -1;
+		verb = -1;
+		dobjects.clear();
+		iobjects.clear();
+		complement = -1;
+		xcomps.clear();
+		ccomps.clear();
+		acomps.clear();
+		adverbials.clear();
+		relativeAdverbial = false;
+		parentClause = null;
+		agent = null;
+		layoutOptions = null;
+		flags = null;
+		requiredMask = 0;
+		optionalMask = 0;
+		arguments = null;
+		adverbialsBeforeVerb = null;
+	}
+
+	/**
+	 * Makes this clause a copy of the given clause (as {@link #clone()}) but
+	 * reuses the lists of this clause.
+	 */
+	void copyFrom(Clause clause) {
+		constituents.clear();
+		constituents.addAll(clause.constituents);
+		type = clause.type;
+		subject = clause.subject;
+		verb = clause.verb;
+		dobjects.setAll(clause.dobjects);
+		iobjects.setAll(clause.iobjects);
+		complement = clause.complement;
+		xcomps.setAll(clause.xcomps);
+		ccomps.setAll(clause.ccomps);
+		acomps.setAll(clause.acomps);
+		adverbials.setAll(clause.adverbials);
+		relativeAdverbial = clause.relativeAdverbial;
+		agent = clause.agent;
+		parentClause = clause.parentClause;
+		// the layout is immutable and can be shared
+		layoutOptions = clause.layoutOptions;
+		flags = clause.flags;
+		requiredMask = clause.requiredMask;
+		optionalMask = clause.optionalMask;
+		arguments = clause.arguments;
+		adverbialsBeforeVerb = clause.adverbialsBeforeVerb;
+	}
+
 	@Override
 	public Clause clone() {
 		Clause clause = new Clause();
@@ -87,24 +179,34 @@ public class Clause {
 		clause.type = type;
 		clause.subject = subject;
 		clause.verb = verb;
-		clause.dobjects = new ArrayList<Integer>(dobjects);
-		clause.iobjects = new ArrayList<Integer>(iobjects);
+		clause.dobjects = new IntList(dobjects);
+		clause.iobjects = new IntList(iobjects);
 		clause.complement = complement;
-		clause.xcomps = new ArrayList<Integer>(xcomps);
-		clause.ccomps = new ArrayList<Integer>(ccomps);
-		clause.acomps = new ArrayList<Integer>(acomps);
-		clause.adverbials = new ArrayList<Integer>(adverbials);
+		clause.xcomps = new IntList(xcomps);
+		clause.ccomps = new IntList(ccomps);
+		clause.acomps = new IntList(acomps);
+		clause.adverbials = new IntList(adverbials);
 		clause.relativeAdverbial = relativeAdverbial;
 		clause.agent = agent;
 		clause.parentClause = parentClause;
+		// the layout is immutable and can be shared
+		clause.layoutOptions = layoutOptions;
+		clause.flags = flags;
+		clause.requiredMask = requiredMask;
+		clause.optionalMask = optionalMask;
+		clause.arguments = arguments;
+		clause.adverbialsBeforeVerb = adverbialsBeforeVerb;
 		return clause;
 	}
 
 	// -- methods
 	// ---------------------------------------------------------------------------------
 
-	/** Determines the type of this clause, if still unknown. */
-	void detectType(Options options) {
+	/**
+	 * Determines the type of this clause, if still unknown. Dictionary lookups
+	 * use the lemma ids in {@code tokens}.
+	 */
+	void detectType(Options options, SentenceTokens tokens) {
 		if (type != Type.UNKNOWN)
 			return;
 
@@ -115,8 +217,9 @@ public class Clause {
 		// e.g., "He is expected to tell the truth."
 		IndexedWord root = ((IndexedConstituent) constituents.get(verb))
 				.getRoot();
+		int rootLemma = tokens.lemmaId(root);
 		boolean hasDirectObject = dobjects.size() > 0
-				|| (complement < 0 && noComplements > 0 && !options.isCop(root));
+				|| (complement < 0 && noComplements > 0 && !options.isCop(rootLemma));
 		boolean hasIndirectObject = !iobjects.isEmpty();
 
 		// Q1: Object?
@@ -140,7 +243,7 @@ public class Clause {
 			}
 
 			// Q10: Potentially complex transitive?
-			if (options.isComTran(root)) {
+			if (options.isComTran(rootLemma)) {
 				type = Type.SVOA;
 				return;
 			}
@@ -156,7 +259,7 @@ public class Clause {
 		} else {
 			// Q2: Complement?
 			// not sure about acomp, can a copular be transitive?
-			if (complement >= 0 || noComplements > 0 && options.isCop(root)
+			if (complement >= 0 || noComplements > 0 && options.isCop(rootLemma)
 					|| !acomps.isEmpty()) {
 				type = Type.SVC;
 				return;
@@ -169,13 +272,13 @@ public class Clause {
 			}
 
 			// Q4: Known non ext. copuular
-			if (options.isNotExtCop(root)) {
+			if (options.isNotExtCop(rootLemma)) {
 				type = Type.SV;
 				return;
 			}
 
 			// Q5: Known ext. copular
-			if (options.isExtCop(root)) {
+			if (options.isExtCop(rootLemma)) {
 				type = Type.SVA;
 				return;
 			}
@@ -191,6 +294,100 @@ public class Clause {
 		}
 	}
 
+	/**
+	 * Computes the layout of this clause, i.e., the flags of its constituents
+	 * and the order in which its arguments are output. Must be called once
+	 * the constituents and the type of this clause are known; the layout is
+	 * not updated when the clause changes afterwards.
+	 */
+	void computeLayout(Options options, SentenceTokens tokens) {
+		int n = constituents.size();
+		flags = new Flag[n];
+		requiredMask = 0;
+		optionalMask = 0;
+		for (int i = 0; i < n; i++) {
+			flags[i] = getFlag(i, options, tokens);
+			if (i >= Long.SIZE) {
+				// not representable; see ClausIE#generateWidePropositions
+				continue;
+			} else if (flags[i] == Flag.REQUIRED) {
+				requiredMask |= 1L << i;
+			} else if (flags[i] == Flag.OPTIONAL) {
+				optionalMask |= 1L << i;
+			}
+		}
+
+		// mark arguments
+		boolean[] isArgument = new boolean[n];
+		mark(isArgument, iobjects);
+		mark(isArgument, dobjects);
+		mark(isArgument, xcomps);
+		mark(isArgument, ccomps);
+		mark(isArgument, acomps);
+		mark(isArgument, adverbials);
+		if (complement >= 0)
+			isArgument[complement] = true;
+
+		// adverbials before the verb are output after all other arguments
+		boolean[] isBeforeVerb = new boolean[n];
+		int[] sortedAdverbials = adverbials.toArray();
+		Arrays.sort(sortedAdverbials);
+		int noBeforeVerb = 0;
+		if (constituents.get(verb) instanceof IndexedConstituent) {
+			int verbIndex = ((IndexedConstituent) constituents.get(verb))
+					.getRoot().index();
+			for (int i : sortedAdverbials) {
+				if (((IndexedConstituent) constituents.get(i)).getRoot()
+						.index() < verbIndex) {
+					isArgument[i] = false;
+				}
+			}
+			for (int i : sortedAdverbials) {
+				if (((IndexedConstituent) constituents.get(i)).getRoot()
+						.index() > verbIndex)
+					break;
+				isBeforeVerb[i] = true;
+				noBeforeVerb++;
+			}
+		}
+		arguments = positions(isArgument);
+		adverbialsBeforeVerb = new int[noBeforeVerb];
+		for (int i = 0, j = 0; i < n; i++) {
+			if (isBeforeVerb[i])
+				adverbialsBeforeVerb[j++] = i;
+		}
+		layoutOptions = options;
+	}
+
+	/** Computes the layout for the given options unless already done. */
+	void ensureLayout(Options options, SentenceTokens tokens) {
+		if (layoutOptions != options) {
+			computeLayout(options, tokens);
+		}
+	}
+
+	/** Sets the given positions in {@code marks} */
+	private static void mark(boolean[] marks, IntList positions) {
+		for (int i = 0; i < positions.size(); i++) {
+			marks[positions.get(i)] = true;
+		}
+	}
+
+	/** Returns the set positions of {@code marks} in increasing order */
+	private static int[] positions(boolean[] marks) {
+		int count = 0;
+		for (boolean mark : marks) {
+			if (mark)
+				count++;
+		}
+		int[] result = new int[count];
+		for (int i = 0, j = 0; i < marks.length; i++) {
+			if (marks[i])
+				result[j++] = i;
+		}
+		return result;
+	}
+
 	/**
 	 * Checks whether this clause has a candidate adverbial, i.e., an adverbial
 	 * that can potentially be obligatory.
@@ -240,7 +437,8 @@ public class Clause {
 			case ADVERBIAL:
 				s.append("A");
 				if (options != null) {
-					switch (getFlag(index, options)) {
+					switch (options == layoutOptions ? flags[index] : getFlag(
+							index, options)) {
 					case IGNORE:
 						s.append("-");
 						break;
@@ -300,11 +498,20 @@ public class Clause {
 	 * or to be ignored.
 	 */
 	public Flag getFlag(int index, Options options) {
+		return getFlag(index, options, null);
+	}
+
+	/**
+	 * Determines the flag of the adverbial at position {@code index}. If
+	 * {@code tokens} is not null, dictionary lookups use its lemma ids.
+	 */
+	Flag getFlag(int index, Options options, SentenceTokens tokens) {
 		boolean first = true;
-		for (int i : adverbials) {
-			if (i == index && isIgnoredAdverbial(i, options))
+		for (int k = 0; k < adverbials.size(); k++) {
+			int i = adverbials.get(k);
+			if (i == index && isIgnoredAdverbial(i, options, tokens))
 				return Flag.IGNORE;
-			else if (i == index && isIncludedAdverbial(i, options))
+			else if (i == index && isIncludedAdverbial(i, options, tokens))
 				return Flag.REQUIRED;
 			int adv = ((IndexedConstituent) constituents.get(i)).getRoot()
 					.index();
@@ -331,7 +538,8 @@ public class Clause {
 	 * Checks whether the adverbial at position {@code index} in
 	 * {@link #adverbials} is to be ignored by ClausIE.
 	 */
-	private boolean isIgnoredAdverbial(int index, Options options) {
+	private boolean isIgnoredAdverbial(int index, Options options,
+			SentenceTokens tokens) {
 		Constituent constituent = constituents.get(index);
 		String s;
 		if (constituent instanceof IndexedConstituent) {
@@ -349,6 +557,12 @@ public class Clause {
 				// complements
 				return false;
 			}
+			if (tokens != null) {
+				int lemmaId = tokens.lemmaId(root);
+				return options.dictAdverbsIgnore.contains(lemmaId)
+						|| (options.processCcNonVerbs && options.dictAdverbsConj
+								.contains(lemmaId));
+			}
 			s = root.lemma();
 		} else {
 			s = constituent.rootString();
@@ -367,7 +581,8 @@ public class Clause {
 	 * {@link #adverbials} is required to be output by ClausIE (e.g., adverbials
 	 * indicating negation, such as "hardly").
 	 */
-	private boolean isIncludedAdverbial(int index, Options options) {
+	private boolean isIncludedAdverbial(int index, Options options,
+			SentenceTokens tokens) {
 		Constituent constituent = constituents.get(index);
 		String s;
 		if (constituent instanceof IndexedConstituent) {
@@ -376,6 +591,10 @@ public class Clause {
 			if (indexedConstituent.getSemanticGraph().hasChildren(root)) {
 				return false;
 			}
+			if (tokens != null) {
+				return options.dictAdverbsInclude.contains(tokens
+						.lemmaId(root));
+			}
 			s = root.lemma();
 		} else {
 			s = constituent.rootString();
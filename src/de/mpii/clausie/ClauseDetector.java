@@ -1,6 +1,7 @@
 package de.mpii.clausie;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -36,6 +37,10 @@ class ClauseDetector {
         EXCLUDE_RELATIONS_COMPLEMENT = Collections.unmodifiableSet(temp);
     }
 
+    /** Indexes of {@link #EXCLUDE_RELATIONS_COMPLEMENT} for ancestor checks ({@see DpRelations}) */
+    private static final BitSet EXCLUDE_RELATIONS_COMPLEMENT_INDEXES = DpRelations
+            .indexes(EXCLUDE_RELATIONS_COMPLEMENT);
+
     /** Set of dependency relations that belong to the verb */
     protected static final Set<GrammaticalRelation> INCLUDE_RELATIONS_VERB;
     static {
@@ -46,38 +51,54 @@ class ClauseDetector {
         INCLUDE_RELATIONS_VERB = Collections.unmodifiableSet(temp);
     }
 
+    /** Indexes of {@link #INCLUDE_RELATIONS_VERB} for ancestor checks ({@see DpRelations}) */
+    private static final BitSet INCLUDE_RELATIONS_VERB_INDEXES = DpRelations
+            .indexes(INCLUDE_RELATIONS_VERB);
+
     private ClauseDetector() {
     };
 
     /** Detects clauses in the input sentence */
     static void detectClauses(ClausIE clausIE) {
-        IndexedConstituent.sentSemanticGraph = clausIE.semanticGraph;
+        IndexedConstituent.sentSemanticGraph.set(clausIE.semanticGraph);
         List<IndexedWord> roots = new ArrayList<IndexedWord>();
         for (SemanticGraphEdge edge : clausIE.semanticGraph.edgeIterable()) {
             // check whether the edge identifies a clause
-            if (DpUtils.isAnySubj(edge)) {
+            if ((DpRelations.categories(edge) & DpRelations.SUBJ) != 0) {
                 // clauses with a subject
                 IndexedWord subject = edge.getDependent();
                 IndexedWord root = edge.getGovernor();
                 addNsubjClause(clausIE, roots, clausIE.clauses, subject, root, false);
-            } else if (clausIE.options.processAppositions && DpUtils.isAppos(edge)) {
-                // clauses for appositions
-                IndexedWord subject = edge.getGovernor();
-                IndexedWord object = edge.getDependent();
-                addApposClause(clausIE, subject, object);
-                roots.add(null);
-            } else if (clausIE.options.processPossessives && DpUtils.isPoss(edge)) {
-                // clauses for possessives
-                IndexedWord subject = edge.getDependent();
-                IndexedWord object = edge.getGovernor();
-                addPossessiveClause(clausIE, subject, object);
-                roots.add(null);
-            } else if (clausIE.options.processPartmods && DpUtils.isPartMod(edge)) {
-                // clauses for participial modifiers
-                IndexedWord subject = edge.getGovernor();
-                IndexedWord object = edge.getDependent();
-                addPartmodClause(clausIE, subject, object, roots);
-            } 
+                continue;
+            }
+            switch (DpRelations.id(edge)) {
+            case DpRelations.APPOS:
+                if (clausIE.options.processAppositions) {
+                    // clauses for appositions
+                    IndexedWord subject = edge.getGovernor();
+                    IndexedWord object = edge.getDependent();
+                    addApposClause(clausIE, subject, object);
+                    roots.add(null);
+                }
+                break;
+            case DpRelations.POSS:
+                if (clausIE.options.processPossessives) {
+                    // clauses for possessives
+                    IndexedWord subject = edge.getDependent();
+                    IndexedWord object = edge.getGovernor();
+                    addPossessiveClause(clausIE, subject, object);
+                    roots.add(null);
+                }
+                break;
+            case DpRelations.PARTMOD:
+                if (clausIE.options.processPartmods) {
+                    // clauses for participial modifiers
+                    IndexedWord subject = edge.getGovernor();
+                    IndexedWord object = edge.getDependent();
+                    addPartmodClause(clausIE, subject, object, roots);
+                }
+                break;
+            }
         }
 
         // postprocess clauses
@@ -101,6 +122,9 @@ class ClauseDetector {
             // exclude vertexes (each constituent needs to excludes vertexes of the other
             // constituents)
             excludeVertexes(clause);
+
+            // freeze flags and argument order for proposition generation
+            clause.computeLayout(clausIE.options, clausIE.getTokens());
         }
     }
 
@@ -152,7 +176,7 @@ class ClauseDetector {
         List<SemanticGraphEdge> toRemove = new ArrayList<SemanticGraphEdge>();
         //to store the heads of the clauses according to the CCs options
         List<IndexedWord> ccs = ProcessConjunctions.getIndexedWordsConj(semanticGraph,
-                clausIE.depTree, clauseRoot, EnglishGrammaticalRelations.CONJUNCT, toRemove,
+                clausIE.spans, clauseRoot, EnglishGrammaticalRelations.CONJUNCT, toRemove,
                 options);
         for (SemanticGraphEdge edge : toRemove)
             semanticGraph.removeEdge(edge);
@@ -164,15 +188,15 @@ class ClauseDetector {
             List<SemanticGraphEdge> incomingEdges = semanticGraph.getIncomingEdgesSorted(root);
 
             // initialize clause
-            Clause clause = new Clause();
+            Clause clause = clausIE.newClause();
             clause.verb = -1;
             SemanticGraphEdge cop = DpUtils.findFirstOfRelation(outgoingEdges,
                     EnglishGrammaticalRelations.COPULA);
             Set<IndexedWord> exclude = null;
             Set<IndexedWord> include = null;
             if (cop != null) {
-                exclude = DpUtils.exclude(semanticGraph, EXCLUDE_RELATIONS_COMPLEMENT, root);
-                include = DpUtils.exclude(semanticGraph, INCLUDE_RELATIONS_VERB, root);
+                exclude = DpUtils.exclude(semanticGraph, EXCLUDE_RELATIONS_COMPLEMENT_INDEXES, root);
+                include = DpUtils.exclude(semanticGraph, INCLUDE_RELATIONS_VERB_INDEXES, root);
             } else {
                 exclude = new HashSet<IndexedWord>();
             }
@@ -270,11 +294,14 @@ class ClauseDetector {
             for (SemanticGraphEdge outgoingEdge : outgoingEdges) {
                 IndexedWord dependent = outgoingEdge.getDependent();
 
+                switch (DpRelations.id(outgoingEdge)) {
                 // to avoid compl or mark in a main clause. "I doubt if she was sure whether this was important".
-                if (DpUtils.isComplm(outgoingEdge) || DpUtils.isMark(outgoingEdge)) {
+                case DpRelations.COMPLM:
+                case DpRelations.MARK:
                     ((IndexedConstituent) constRoot).getExcludedVertexes().add(dependent);
+                    break;
                 //Indirect Object
-                } else if (DpUtils.isIobj(outgoingEdge)) {
+                case DpRelations.IOBJ:
                     clause.iobjects.add(clause.constituents.size());
                     //If it is a relative clause headed by a relative pronoun.
                     if (dependent.tag().charAt(0) == 'W' && rcmod != null) {
@@ -292,8 +319,9 @@ class ClauseDetector {
                     } else
                         clause.constituents.add(new IndexedConstituent(semanticGraph, dependent,
                                 Constituent.Type.IOBJ));
+                    break;
                 //Direct Object
-                } else if (DpUtils.isDobj(outgoingEdge)) {
+                case DpRelations.DOBJ:
                     clause.dobjects.add(clause.constituents.size());
                     if (dependent.tag().charAt(0) == 'W' && rcmod != null) {
                         clause.constituents.add(createRelConstituent(semanticGraph,
@@ -308,14 +336,16 @@ class ClauseDetector {
                     } else
                         clause.constituents.add(new IndexedConstituent(semanticGraph, dependent,
                                 Constituent.Type.DOBJ));
+                    break;
                 //CCOMPS
-                } else if (DpUtils.isCcomp(outgoingEdge)) {
+                case DpRelations.CCOMP:
                     clause.ccomps.add(clause.constituents.size());
                     clause.constituents.add(new IndexedConstituent(semanticGraph, dependent,
                             Constituent.Type.CCOMP));
+                    break;
                 //XCOMPS (Note: Need special treatment, they won't form a new clause so optional/obligatory constituents
                 // are managed within the context of its parent clause)
-                } else if (DpUtils.isXcomp(outgoingEdge)) {              	
+                case DpRelations.XCOMP: {
                     List<IndexedWord> xcomproots = new ArrayList<IndexedWord>();
                     List<Clause> xcompclauses = new ArrayList<Clause>();
                     IndexedWord xcompsubject = null;
@@ -334,56 +364,53 @@ class ClauseDetector {
                                     .add(xcompsubject);
                         }
                         excludeVertexes(cl);
+                        cl.computeLayout(options, clausIE.getTokens());
                     }
                     clause.xcomps.add(clause.constituents.size());
                     clause.constituents.add(new XcompConstituent(semanticGraph, dependent,
                             Constituent.Type.XCOMP, xcompclauses));
+                    break;
+                }
                  //Adjective complement
-                } else if (DpUtils.isAcomp(outgoingEdge)) { 
+                case DpRelations.ACOMP:
                     clause.acomps.add(clause.constituents.size());
                     clause.constituents.add(new IndexedConstituent(semanticGraph, dependent,
                             Constituent.Type.ACOMP));
-                 //Various Adverbials
-                } else if ((DpUtils.isAnyPrep(outgoingEdge)
-						|| DpUtils.isPobj(outgoingEdge)
-						|| DpUtils.isTmod(outgoingEdge)
-						|| DpUtils.isAdvcl(outgoingEdge)
-						|| DpUtils.isNpadvmod(outgoingEdge) || DpUtils
-							.isPurpcl(outgoingEdge))
-
-				) {
-					int constint = clause.constituents.size();
-					clause.adverbials.add(constint);
-					clause.constituents.add(new IndexedConstituent(
-							semanticGraph, dependent,
-							Constituent.Type.ADVERBIAL));
-				//Advmod
-				} else if (DpUtils.isAdvmod(outgoingEdge)) {
-                    int constint = clause.constituents.size();
-                    clause.adverbials.add(constint);
-                    clause.constituents.add(new IndexedConstituent(semanticGraph, dependent,
-                            Constituent.Type.ADVERBIAL));
-                 //Partmod    
-                } else if (DpUtils.isPartMod(outgoingEdge)) { 
-                    int constint = clause.constituents.size();
-                    clause.adverbials.add(constint);
+                    break;
+                 //Various Adverbials, Advmod and Partmod
+                case DpRelations.POBJ:
+                case DpRelations.TMOD:
+                case DpRelations.ADVCL:
+                case DpRelations.NPADVMOD:
+                case DpRelations.PURPCL:
+                case DpRelations.ADVMOD:
+                case DpRelations.PARTMOD:
+                    clause.adverbials.add(clause.constituents.size());
                     clause.constituents.add(new IndexedConstituent(semanticGraph, dependent,
                             Constituent.Type.ADVERBIAL));
+                    break;
                  //Rel appears in certain cases when relative pronouns act as prepositional objects "I saw the house in which I grew".
                  // We generate a new clause out of the relative clause   
-                } else if (DpUtils.isRel(outgoingEdge)) {
-                	processRel(outgoingEdge, semanticGraph, dependent, rcmod, clause);
-                	rcmod = null;
-                	
+                case DpRelations.REL:
+                    processRel(outgoingEdge, semanticGraph, dependent, rcmod, clause);
+                    rcmod = null;
+                    break;
                 //To process passive voice (!Not done here)
                // } else if (DpUtils.isAgent(outgoingEdge))
                //     clause.agent = dependent;
-               // else if (DpUtils.isMark(outgoingEdge) || DpUtils.isComplm(outgoingEdge)) {
-                    // clause.subordinateConjunction = dependent;
-                } else if (DpUtils.isExpl(outgoingEdge))
+                case DpRelations.EXPL:
                     clause.type = Clause.Type.EXISTENTIAL;
+                    break;
               //  else if (options.processCcAllVerbs && DpUtils.isAnyConj(outgoingEdge))
                //     coordinatedConjunctions.add(dependent);
+                default:
+                    // prepositional modifiers (prep and its collapsed forms, e.g., prep_in)
+                    if ((DpRelations.categories(outgoingEdge) & DpRelations.PREP) != 0) {
+                        clause.adverbials.add(clause.constituents.size());
+                        clause.constituents.add(new IndexedConstituent(semanticGraph, dependent,
+                                Constituent.Type.ADVERBIAL));
+                    }
+                }
             }
 
  //------------------------To process relative clauses with implicit (zero) relative pronoun-------------------------
@@ -435,7 +462,7 @@ class ClauseDetector {
             //Detect type and mantain clause lists
             roots.add(root);
             if (!partmod) {
-                clause.detectType(options);
+                clause.detectType(options, clausIE.getTokens());
             } else {
                 clause.type = Clause.Type.SVA;
             }
@@ -518,7 +545,7 @@ class ClauseDetector {
         double weight = poss.getWeight();
         newSemanticGraph.addEdge(poss.getGovernor(), rcmod.getGovernor(),
                 EnglishGrammaticalRelations.POSSESSION_MODIFIER, weight);
-        Set<IndexedWord> exclude = DpUtils.exclude(newSemanticGraph, EXCLUDE_RELATIONS_COMPLEMENT,
+        Set<IndexedWord> exclude = DpUtils.exclude(newSemanticGraph, EXCLUDE_RELATIONS_COMPLEMENT_INDEXES,
                 rcmod.getGovernor());
         newSemanticGraph.removeEdge(poss);
         newSemanticGraph.removeEdge(rcmod);
@@ -538,7 +565,7 @@ class ClauseDetector {
                 EnglishGrammaticalRelations.COPULA);
         if (rccop != null) {
             Set<IndexedWord> excludercmod = DpUtils.exclude(semanticGraph,
-                    EXCLUDE_RELATIONS_COMPLEMENT, root);
+                    EXCLUDE_RELATIONS_COMPLEMENT_INDEXES, root);
             return new IndexedConstituent(semanticGraph, root,
                     Collections.<IndexedWord> emptySet(), excludercmod, type);
         } else
@@ -549,13 +576,14 @@ class ClauseDetector {
     * @param subject The subject of the clause (first argument of the appos relation)
     * @param object  The object of the clause (second argument of the appos relation)*/
     private static void addApposClause(ClausIE clausIE, IndexedWord subject, IndexedWord object) {
-        Clause clause = new Clause();
+        Clause clause = clausIE.newClause();
         clause.subject = 0;
         clause.verb = 1;
         clause.complement = 2;
         clause.constituents.add(new IndexedConstituent(clausIE.semanticGraph, subject,
                 Constituent.Type.SUBJECT));
         clause.constituents.add(new TextConstituent(clausIE.options.appositionVerb,
+                TextConstituent.Source.APPOSITION_VERB,
                 Constituent.Type.VERB));
         clause.constituents.add(new IndexedConstituent(clausIE.semanticGraph, object,
                 Constituent.Type.COMPLEMENT));
@@ -568,7 +596,7 @@ class ClauseDetector {
     * @param object  The object of the clause */
     private static void addPossessiveClause(ClausIE clausIE, IndexedWord subject,
             IndexedWord object) {
-        Clause clause = new Clause();
+        Clause clause = clausIE.newClause();
         SemanticGraph newSemanticGraph = new SemanticGraph(clausIE.semanticGraph);
         clause.subject = 0;
         clause.verb = 1;
@@ -606,6 +634,7 @@ class ClauseDetector {
                     .<IndexedWord> emptySet(), excludesub, Type.SUBJECT));
         }
         clause.constituents.add(new TextConstituent(clausIE.options.possessiveVerb,
+                TextConstituent.Source.POSSESSIVE_VERB,
                 Constituent.Type.VERB));
         clause.constituents.add(new IndexedConstituent(newSemanticGraph, object, Collections
                 .<IndexedWord> emptySet(), excludeobj, Constituent.Type.DOBJ));
@@ -656,7 +685,7 @@ class ClauseDetector {
                     subject.getDependent(), Type.SUBJECT);
             Constituent object = new IndexedConstituent(clausIE.semanticGraph, root, Type.DOBJ);
             ((IndexedConstituent) object).excludedVertexes.add(parroot);
-            Clause clause = new Clause();
+            Clause clause = clausIE.newClause();
             clause.subject = 0;
             clause.verb = 1;
             clause.dobjects.add(2);
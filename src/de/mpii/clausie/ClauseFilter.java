@@ -0,0 +1,208 @@
+package de.mpii.clausie;
+
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.objectbank.TokenizerFactory;
+import edu.stanford.nlp.process.CoreLabelTokenFactory;
+import edu.stanford.nlp.process.PTBTokenizer;
+
+/** Predicts from the tokens of a sentence alone whether the sentence may contain a clause, so that
+ * sentences without any clause (headings, table rows, list items) need not be parsed.
+ *
+ * A clause requires a verb (or a copula), an apposition or a possessive. The filter therefore
+ * accepts a sentence if it contains an auxiliary, a subject pronoun, a possessive (a possessive
+ * pronoun or <code>'s</code>), a comma followed by an article (which may start an apposition), or
+ * a lowercase word after the first that may be a verb: a frequent irregular verb form, an
+ * inflection of a word in one of the verb dictionaries of the options, or a word ending in
+ * <code>-ed</code> or <code>-s</code> that is followed by a determiner, an object pronoun, a
+ * preposition, an adverb or the end of the sentence. Capitalized words, which are common in headings, and
+ * plural nouns in table rows and lists thus do not count as verbs. Sentences with fewer than two
+ * words are rejected. The recall of the filter against the full pipeline can be measured with
+ * {@link #record(boolean, boolean)}.
+ *
+ * @date $ $
+ * @version $ $ */
+public class ClauseFilter {
+
+	/** Forms of auxiliary and modal verbs */
+	private static final Set<String> AUXILIARIES = new HashSet<String>(Arrays.asList("am", "is",
+			"are", "was", "were", "be", "been", "being", "'s", "'re", "'m", "has", "have", "had",
+			"'ve", "'d", "do", "does", "did", "will", "would", "'ll", "can", "could", "may",
+			"might", "must", "shall", "should", "ca", "wo"));
+
+	/** Forms of frequent irregular verbs */
+	private static final Set<String> VERB_FORMS = new HashSet<String>(Arrays.asList("done",
+			"get", "got", "go", "goes", "went", "gone", "make", "made", "say", "said", "take",
+			"took", "taken", "give", "gave", "given", "see", "saw", "seen", "know", "knew",
+			"known", "come", "came", "find", "found", "think", "thought", "tell", "told", "become",
+			"became", "leave", "left", "put", "set", "let", "keep", "kept", "hold", "held",
+			"bring", "brought", "begin", "began", "begun", "run", "ran", "write", "wrote",
+			"written", "sit", "sat", "stand", "stood", "lose", "lost", "pay", "paid", "meet",
+			"met", "lead", "led", "win", "won", "buy", "bought", "sell", "sold", "build", "built",
+			"send", "sent", "fall", "fell", "grow", "grew", "grown", "rise", "rose", "risen",
+			"sing", "sang", "sung", "speak", "spoke", "spoken", "feel", "felt", "hear", "heard",
+			"mean", "meant", "spend", "spent", "teach", "taught", "catch", "caught", "fight",
+			"fought", "break", "broke", "broken", "choose", "chose", "chosen", "drive", "drove",
+			"driven", "fly", "flew", "flown", "eat", "ate", "eaten", "die", "live", "work", "use",
+			"want", "need", "like"));
+
+	/** Words that may follow a verb: determiners, object pronouns, prepositions and adverbs */
+	private static final Set<String> COMPLEMENT_STARTS = new HashSet<String>(Arrays.asList("a",
+			"an", "the", "this", "that", "these", "those", "some", "no", "me", "him", "us", "them",
+			"in", "on", "at", "to", "from", "by", "with", "for", "of", "into", "as", "about",
+			"after", "before", "over", "under", "through", "during", "against", "between",
+			"outside", "inside", "up", "down", "out", "off", "late", "early", "again", "here",
+			"there", "not", "never"));
+
+	/** Determiners that may start an apposition after a comma */
+	private static final Set<String> APPOSITION_STARTS = new HashSet<String>(Arrays.asList("a",
+			"an", "the"));
+
+	/** Possessive pronouns */
+	private static final Set<String> POSSESSIVES = new HashSet<String>(Arrays.asList("my",
+			"your", "his", "her", "its", "our", "their", "whose"));
+
+	/** Subject pronouns, which are usually followed by a verb */
+	private static final Set<String> SUBJECT_PRONOUNS = new HashSet<String>(Arrays.asList("i",
+			"you", "he", "she", "it", "we", "they", "who"));
+
+	/** Lemmas of the verb dictionaries */
+	private final Set<String> verbLemmas = new HashSet<String>();
+
+	private final TokenizerFactory<CoreLabel> tokenizerFactory = PTBTokenizer.factory(
+			new CoreLabelTokenFactory(), "");
+
+	/** Number of sentences checked */
+	private final AtomicLong checked = new AtomicLong();
+
+	/** Number of sentences predicted to contain no clause */
+	private final AtomicLong rejected = new AtomicLong();
+
+	/** Number of recorded sentences that contain a clause */
+	private final AtomicLong withClauses = new AtomicLong();
+
+	/** Number of recorded sentences that contain a clause but were rejected */
+	private final AtomicLong missed = new AtomicLong();
+
+	/** Creates a filter that uses the verb dictionaries of the given options */
+	public ClauseFilter(Options options) {
+		for (Dictionary dictionary : new Dictionary[] { options.dictCopular,
+				options.dictExtCopular, options.dictNotExtCopular, options.dictComplexTransitive }) {
+			verbLemmas.addAll(dictionary.words());
+		}
+	}
+
+	/** Checks whether the given sentence may contain a clause */
+	public boolean mayHaveClause(String sentence) {
+		return mayHaveClause(tokenizerFactory.getTokenizer(new StringReader(sentence)).tokenize());
+	}
+
+	/** Checks whether the sentence with the given tokens may contain a clause */
+	public boolean mayHaveClause(List<CoreLabel> tokens) {
+		checked.incrementAndGet();
+		int noWords = 0;
+		boolean cue = false;
+		for (int i=0; i<tokens.size(); i++) {
+			String word = tokens.get(i).word();
+			if (Character.isLetterOrDigit(word.charAt(0))) {
+				noWords++;
+			}
+			if (!cue) {
+				String lower = word.toLowerCase();
+				String next = i + 1 < tokens.size() ? tokens.get(i + 1).word().toLowerCase() : "";
+				cue = AUXILIARIES.contains(lower) || POSSESSIVES.contains(lower)
+						|| SUBJECT_PRONOUNS.contains(lower)
+						|| (word.equals(",") && APPOSITION_STARTS.contains(next))
+						// capitalized words are likely names or words of a heading, and a
+						// sentence starting with a verb is likely an imperative or a list item
+						|| (i > 0 && word.equals(lower) && isVerbLike(lower, next));
+			}
+		}
+		if (noWords >= 2 && cue) {
+			return true;
+		}
+		rejected.incrementAndGet();
+		return false;
+	}
+
+	/** Checks whether a lowercase word followed by the word {@code next} (lowercased, empty at the
+	 * end of the sentence) may be a verb */
+	private boolean isVerbLike(String lower, String next) {
+		if (VERB_FORMS.contains(lower) || verbLemmas.contains(lower)) {
+			return true;
+		}
+		for (String suffix : new String[] { "s", "es", "d", "ed", "ing" }) {
+			if (lower.endsWith(suffix)) {
+				String stem = lower.substring(0, lower.length() - suffix.length());
+				if (verbLemmas.contains(stem) || verbLemmas.contains(stem + "e")) {
+					return true;
+				}
+			}
+		}
+		// regular past tense and third person singular of other verbs; these suffixes are shared
+		// with participles and plural nouns, so the word must also be followed by the start of
+		// an object, a complement or an adverb or end the sentence
+		if (lower.length() > 3
+				&& (lower.endsWith("ed") || (lower.endsWith("s") && !lower.endsWith("ss")
+						&& !lower.endsWith("us") && !lower.endsWith("is")))) {
+			return COMPLEMENT_STARTS.contains(next) || next.endsWith("ly") || next.equals(".")
+					|| next.equals("!") || next.equals("?");
+		}
+		return false;
+	}
+
+	/** Records the outcome of the full pipeline for a sentence, i.e., whether it was accepted by
+	 * the filter and whether clauses were detected, to measure recall */
+	public void record(boolean accepted, boolean hasClauses) {
+		if (hasClauses) {
+			withClauses.incrementAndGet();
+			if (!accepted) {
+				missed.incrementAndGet();
+			}
+		}
+	}
+
+	/** Returns the number of sentences checked */
+	public long getChecked() {
+		return checked.get();
+	}
+
+	/** Returns the number of sentences predicted to contain no clause */
+	public long getRejected() {
+		return rejected.get();
+	}
+
+	/** Returns the fraction of recorded sentences with clauses that were accepted (1 if no
+	 * sentence with clauses was recorded) */
+	public double getRecall() {
+		long total = withClauses.get();
+		return total == 0 ? 1. : (double) (total - missed.get()) / total;
+	}
+
+	/** Prints the statistics of the filter */
+	public void printStatistics(PrintStream out, String prefix) {
+		out.print(prefix);
+		out.print("Clause filter: ");
+		out.print(getChecked());
+		out.print(" sentence(s) checked, ");
+		out.print(getRejected());
+		out.println(" rejected");
+		if (withClauses.get() > 0 || missed.get() > 0) {
+			out.print(prefix);
+			out.print("Clause filter recall: ");
+			out.print(String.format("%.4f", getRecall()));
+			out.print(" (");
+			out.print(missed.get());
+			out.print(" of ");
+			out.print(withClauses.get());
+			out.println(" sentence(s) with clauses rejected)");
+		}
+	}
+}
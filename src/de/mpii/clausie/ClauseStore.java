@@ -0,0 +1,141 @@
+package de.mpii.clausie;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import edu.stanford.nlp.trees.semgraph.SemanticGraph;
+
+/** Persists the detected clauses of sentences so that propositions can be regenerated with
+ * different representation options without parsing and clause detection.
+ *
+ * A store is a gzipped stream of serialized {@link Record}s, one per sentence. Each record
+ * contains the dependencies and the spans of the constituency tree ({@link TreeSpans}) of the
+ * sentence and its clauses along with the values of the detection options used
+ * ({@link Options#detectionKey()}); a record can only be used with options of the same
+ * detection values (see {@link ClausIE#loadClauses(Record)}). The options for coordinating
+ * conjunctions ({@link Options#processCcAllVerbs}, {@link Options#processCcNonVerbs}) are used by
+ * the detector as well, so changing them requires detecting the clauses again. The constituency
+ * tree itself is not stored.
+ *
+ * @date $ $
+ * @version $ $ */
+public class ClauseStore {
+
+	/** Identifies the format of a store */
+	private static final String MAGIC = "ClausIE clauses";
+
+	/** Version of the format of a store */
+	private static final int VERSION = 3;
+
+	/** The parse and the clauses of a sentence */
+	public static class Record implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		/** Identifier of the sentence */
+		final int id;
+
+		/** Text of the sentence */
+		final String sentence;
+
+		/** Values of the detection options used to detect the clauses */
+		final List<Object> detectionKey;
+
+		final TreeSpans spans;
+		final SemanticGraph semanticGraph;
+		final List<Clause> clauses;
+		final double score;
+
+		/** Creates a record of the current sentence of the given ClausIE instance */
+		Record(int id, String sentence, ClausIE clausIE) {
+			this.id = id;
+			this.sentence = sentence;
+			this.detectionKey = clausIE.options.detectionKey();
+			this.spans = clausIE.spans;
+			this.semanticGraph = clausIE.semanticGraph;
+			this.clauses = new ArrayList<Clause>(clausIE.clauses);
+			this.score = clausIE.score;
+		}
+
+		/** Returns the identifier of the sentence */
+		public int getId() {
+			return id;
+		}
+
+		/** Returns the text of the sentence */
+		public String getSentence() {
+			return sentence;
+		}
+	}
+
+	/** Writes clauses to a store */
+	public static class Writer implements Closeable {
+		private final ObjectOutputStream out;
+
+		/** Starts a new store in the given stream */
+		public Writer(OutputStream out) throws IOException {
+			this.out = new ObjectOutputStream(new GZIPOutputStream(new BufferedOutputStream(out)));
+			this.out.writeUTF(MAGIC);
+			this.out.writeInt(VERSION);
+		}
+
+		/** Writes the parse and the clauses of the current sentence of {@code clausIE}; must be
+		 * called after {@link ClausIE#detectClauses()} and before propositions are generated */
+		public void write(int id, String sentence, ClausIE clausIE) throws IOException {
+			out.writeObject(new Record(id, sentence, clausIE));
+			// clauses are reused for the next sentence, so they must not be written by reference
+			out.reset();
+		}
+
+		/** Marks the end of the store and closes the stream */
+		@Override
+		public void close() throws IOException {
+			out.writeObject(null);
+			out.close();
+		}
+	}
+
+	/** Reads clauses from a store */
+	public static class Reader implements Closeable {
+		private final ObjectInputStream in;
+
+		/** Opens a store in the given stream */
+		public Reader(InputStream in) throws IOException {
+			this.in = new ObjectInputStream(new GZIPInputStream(new BufferedInputStream(in)));
+			if (!MAGIC.equals(this.in.readUTF()) || this.in.readInt() != VERSION) {
+				throw new IOException("Not a ClausIE clause store or unsupported version");
+			}
+		}
+
+		/** Returns the next record or null if the end of the store has been reached */
+		public Record read() throws IOException {
+			try {
+				return (Record) in.readObject();
+			} catch (EOFException e) {
+				// store has not been closed properly
+				return null;
+			} catch (ClassNotFoundException e) {
+				throw new IOException(e.getMessage());
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+
+	private ClauseStore() {
+	}
+}
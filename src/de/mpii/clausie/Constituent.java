@@ -1,7 +1,10 @@
 package de.mpii.clausie;
 
+import java.io.Serializable;
+
 /** A constituent of a clause. */
-public abstract class Constituent {
+public abstract class Constituent implements Serializable {
+    private static final long serialVersionUID = 1L;
 
     // -- types -----------------------------------------------------------------------------------
 
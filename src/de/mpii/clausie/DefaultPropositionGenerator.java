@@ -1,9 +1,8 @@
 package de.mpii.clausie;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
 import de.mpii.clausie.Constituent.Flag;
 
@@ -16,21 +15,36 @@ public class DefaultPropositionGenerator extends PropositionGenerator {
 		super(clausIE);
 	}
 
+	/** Generates propositions for a given clause; the layout of the clause must have been
+	 * computed (see {@link Clause#computeLayout(Options, SentenceTokens)}) */
 	@Override
-	public void generate(List<Proposition> result, Clause clause,
-			List<Boolean> include) {
+	public void generate(PropositionSink sink, Clause clause,
+			long include) {
+		generate(sink, clause, include, null);
+	}
+
+	@Override
+	public void generate(PropositionSink sink, Clause clause,
+			BitSet include) {
+		generate(sink, clause, 0, include);
+	}
+
+	/** Generates propositions for a given clause; the included constituents are given by
+	 * {@code wideInclude} if not null, else by the mask {@code include} */
+	private void generate(PropositionSink sink, Clause clause,
+			long include, BitSet wideInclude) {
 		Proposition proposition = new Proposition();
 		List<Proposition> propositions = new ArrayList<Proposition>();
 		
 		// process subject
-		if (clause.subject > -1 && include.get(clause.subject)) { // subject is -1 when there is an xcomp
+		if (clause.subject > -1 && isIncluded(include, wideInclude, clause.subject)) { // subject is -1 when there is an xcomp
 			proposition.constituents.add( generate(clause, clause.subject) );
 		} else {
 			//throw new IllegalArgumentException();
 		}
 		
 		// process verb
-		if (include.get(clause.verb)) {
+		if (isIncluded(include, wideInclude, clause.verb)) {
 			proposition.constituents.add( generate(clause, clause.verb) );
 		} else {
 			throw new IllegalArgumentException();
@@ -39,34 +53,21 @@ public class DefaultPropositionGenerator extends PropositionGenerator {
 		propositions.add(proposition);
 		
 		// process arguments
-		SortedSet<Integer> sortedIndexes = new TreeSet<Integer>();
-		sortedIndexes.addAll(clause.iobjects);
-		sortedIndexes.addAll(clause.dobjects);
-		sortedIndexes.addAll(clause.xcomps);
-		sortedIndexes.addAll(clause.ccomps);
-		sortedIndexes.addAll(clause.acomps);
-		sortedIndexes.addAll(clause.adverbials);
-		if (clause.complement >= 0)
-			sortedIndexes.add(clause.complement);
-		for(Integer index: sortedIndexes) {
-			if (clause.constituents.get(clause.verb) instanceof IndexedConstituent && clause.adverbials.contains(index) && ((IndexedConstituent)clause.constituents.get(index)).getRoot().index() < ((IndexedConstituent)clause.constituents.get(clause.verb)).getRoot().index()) continue;
+		for (int index : clause.arguments) {
 				for(Proposition p: propositions) {
-						if (include.get(index)) {
+						if (isIncluded(include, wideInclude, index)) {
 							p.constituents.add( generate(clause, index) );
 						}
 				}
 		}
 		
 		// process adverbials  before verb
-		sortedIndexes.clear();
-		sortedIndexes.addAll(clause.adverbials);
-		for (Integer index : sortedIndexes) {
-			if (clause.constituents.get(clause.verb) instanceof TextConstituent || ((IndexedConstituent)clause.constituents.get(index)).getRoot().index() > ((IndexedConstituent)clause.constituents.get(clause.verb)).getRoot().index()) break;
-			if (include.get(index)) {
+		for (int index : clause.adverbialsBeforeVerb) {
+			if (isIncluded(include, wideInclude, index)) {
 				for(Proposition p: propositions) {
 					p.constituents.add( generate(clause, index) );
-					if (clause.getFlag(index, clausIE.options).equals(Flag.OPTIONAL)) {
-						p.optional.add(p.constituents.size());
+					if (clause.flags[index] == Flag.OPTIONAL) {
+						p.setOptional(p.constituents.size());
 					}	
 				}
 			}
@@ -75,14 +76,11 @@ public class DefaultPropositionGenerator extends PropositionGenerator {
 		// make 3-ary if needed
 		if (!clausIE.options.nary ) {
 			for(Proposition p: propositions) {
-				p.optional.clear();
+				p.optional = 0;
 				if (p.constituents.size() > 3) {
-					StringBuilder arg = new StringBuilder();
-					for (int i=2; i<p.constituents.size(); i++) {
-						if (i>2) arg.append(" ");
-						arg.append(p.constituents.get(i));
-					}
-					p.constituents.set(2,  arg.toString());
+					Phrase arg = clausIE.getTokens().intern(
+							Phrase.join(p.constituents.subList(2, p.constituents.size())));
+					p.constituents.set(2,  arg);
 					for (int i=p.constituents.size()-1; i>2; i--) {
 						p.constituents.remove(i);
 					}
@@ -91,6 +89,13 @@ public class DefaultPropositionGenerator extends PropositionGenerator {
 		}
 		
 		// we are done
-		result.addAll(propositions);
+		for (Proposition p : propositions) {
+			sink.add(p);
+		}
+	}
+
+	/** Checks whether the constituent at position {@code index} is included */
+	private static boolean isIncluded(long include, BitSet wideInclude, int index) {
+		return wideInclude != null ? wideInclude.get(index) : isIncluded(include, index);
 	}
 }
@@ -4,8 +4,10 @@ import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.TreeSet;
 
 import edu.stanford.nlp.ling.IndexedWord;
 
@@ -18,6 +20,13 @@ public class Dictionary {
 	/** Stores the strings */
 	public Set<String> words = new HashSet<String>();
 	
+	/** Ids of the strings in the {@link LemmaIndex} passed to {@link #compile(LemmaIndex)} */
+	private BitSet ids = new BitSet();
+	
+	/** Sorted strings of the dictionary, one per line, as of the last call to
+	 * {@link #compile(LemmaIndex)} */
+	private String canonicalWords = "";
+	
 	public Dictionary() {		
 	}
 	
@@ -33,6 +42,33 @@ public class Dictionary {
 		return words.contains( word.lemma() );
 	}
 	
+	/** Checks whether the dictionary contains the lemma with the given id. Requires a
+	 * previous call to {@link #compile(LemmaIndex)} with the index that assigned the id. */
+	public boolean contains(int lemmaId) {
+		return lemmaId >= 0 && ids.get(lemmaId);
+	}
+	
+	/** Assigns ids to all strings of the dictionary and stores them as a bit set. Must be 
+	 * called again when {@link #words} is modified. */
+	public void compile(LemmaIndex index) {
+		ids.clear();
+		for (String word : words) {
+			ids.set(index.add(word));
+		}
+		StringBuilder sb = new StringBuilder();
+		for (String word : new TreeSet<String>(words)) {
+			sb.append(word).append('\n');
+		}
+		canonicalWords = sb.toString();
+	}
+	
+	/** Returns the sorted strings of the dictionary, one per line, as of the last call to
+	 * {@link #compile(LemmaIndex)}. Dictionaries with the same strings have equal canonical
+	 * words; the string is built only once, so that it can be compared and hashed cheaply. */
+	public String canonicalWords() {
+		return canonicalWords;
+	}
+	
 	/** Loads the dictionary out of an {@link InputStream}. Each line 
 	 * of the original file should contain an entry to the dictionary */
 	public void load(InputStream in) throws IOException {
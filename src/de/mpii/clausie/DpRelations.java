@@ -0,0 +1,216 @@
+package de.mpii.clausie;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import edu.stanford.nlp.trees.EnglishGrammaticalRelations;
+import edu.stanford.nlp.trees.GrammaticalRelation;
+import edu.stanford.nlp.trees.semgraph.SemanticGraphEdge;
+
+/** Maps grammatical relations to small integer ids and category masks so that the clause detector
+ * can dispatch on the relation of an edge with a single <code>switch</code> instead of a chain of
+ * {@link DpUtils} checks.
+ *
+ * Each relation is classified once; relations that are created while parsing (e.g., collapsed
+ * prepositions such as <code>prep_in</code>) are classified the first time they are seen. The
+ * classification includes the set of ancestors of the relation in the relation hierarchy, so that
+ * "is X or a descendant of X" checks ({@link #isAncestor(GrammaticalRelation, GrammaticalRelation)})
+ * are bit tests instead of walks up the hierarchy.
+ *
+ * @date $ $
+ * @version $ $ */
+public class DpRelations {
+
+    // -- relation ids --------------------------------------------------------------------------
+
+    /** Id of all relations that are not distinguished by the clause detector */
+    public static final int OTHER = 0;
+    public static final int IOBJ = 1;
+    public static final int DOBJ = 2;
+    public static final int POBJ = 3;
+    public static final int CCOMP = 4;
+    public static final int XCOMP = 5;
+    public static final int ACOMP = 6;
+    public static final int TMOD = 7;
+    public static final int ADVCL = 8;
+    public static final int NPADVMOD = 9;
+    public static final int PURPCL = 10;
+    public static final int ADVMOD = 11;
+    public static final int PARTMOD = 12;
+    public static final int REL = 13;
+    public static final int EXPL = 14;
+    public static final int COMPLM = 15;
+    public static final int MARK = 16;
+    public static final int APPOS = 17;
+    public static final int POSS = 18;
+
+    /** Relations with a dedicated id, indexed by id */
+    private static final GrammaticalRelation[] RELATIONS = {
+            null,
+            EnglishGrammaticalRelations.INDIRECT_OBJECT,
+            EnglishGrammaticalRelations.DIRECT_OBJECT,
+            EnglishGrammaticalRelations.PREPOSITIONAL_OBJECT,
+            EnglishGrammaticalRelations.CLAUSAL_COMPLEMENT,
+            EnglishGrammaticalRelations.XCLAUSAL_COMPLEMENT,
+            EnglishGrammaticalRelations.ADJECTIVAL_COMPLEMENT,
+            EnglishGrammaticalRelations.TEMPORAL_MODIFIER,
+            EnglishGrammaticalRelations.ADV_CLAUSE_MODIFIER,
+            EnglishGrammaticalRelations.NP_ADVERBIAL_MODIFIER,
+            EnglishGrammaticalRelations.PURPOSE_CLAUSE_MODIFIER,
+            EnglishGrammaticalRelations.ADVERBIAL_MODIFIER,
+            EnglishGrammaticalRelations.PARTICIPIAL_MODIFIER,
+            EnglishGrammaticalRelations.RELATIVE,
+            EnglishGrammaticalRelations.EXPLETIVE,
+            EnglishGrammaticalRelations.COMPLEMENTIZER,
+            EnglishGrammaticalRelations.MARKER,
+            EnglishGrammaticalRelations.APPOSITIONAL_MODIFIER,
+            EnglishGrammaticalRelations.POSSESSION_MODIFIER };
+
+    // -- categories ----------------------------------------------------------------------------
+
+    /** Category of all subject relations (see {@link DpUtils#isAnySubj(SemanticGraphEdge)}) */
+    public static final int SUBJ = 1;
+
+    /** Category of all object relations (see {@link DpUtils#isAnyObj(SemanticGraphEdge)}) */
+    public static final int OBJ = 1 << 1;
+
+    /** Category of all prepositional modifiers (see {@link DpUtils#isAnyPrep(SemanticGraphEdge)}) */
+    public static final int PREP = 1 << 2;
+
+    /** Category of all conjuncts (see {@link DpUtils#isAnyConj(SemanticGraphEdge)}) */
+    public static final int CONJ = 1 << 3;
+
+    /** Root relation of each category, indexed by the bit position of the category */
+    private static final GrammaticalRelation[] CATEGORIES = {
+            EnglishGrammaticalRelations.SUBJECT,
+            EnglishGrammaticalRelations.OBJECT,
+            EnglishGrammaticalRelations.PREPOSITIONAL_MODIFIER,
+            EnglishGrammaticalRelations.CONJUNCT };
+
+    /** Classification of a relation */
+    private static final class Entry {
+        /** Position of the relation in the ancestor sets of its descendants */
+        final int index;
+
+        /** Id in the lower 16 bits and categories in the upper 16 bits */
+        final int code;
+
+        /** Indexes of the relation and all its ancestors */
+        final BitSet ancestors;
+
+        Entry(int index, int code, BitSet ancestors) {
+            this.index = index;
+            this.code = code;
+            this.ancestors = ancestors;
+        }
+    }
+
+    /** Next free index */
+    private static final AtomicInteger NEXT_INDEX = new AtomicInteger();
+
+    /** Classification of each relation seen so far */
+    private static final ConcurrentMap<GrammaticalRelation, Entry> ENTRIES = new ConcurrentHashMap<GrammaticalRelation, Entry>();
+
+    /** Indexes of the root relations of the categories, indexed by the bit position of the
+     * category */
+    private static final int[] CATEGORY_INDEXES = new int[CATEGORIES.length];
+    static {
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            CATEGORY_INDEXES[i] = entry(CATEGORIES[i]).index;
+        }
+        // the relations classified so far were classified without knowing the categories
+        for (Map.Entry<GrammaticalRelation, Entry> e : ENTRIES.entrySet()) {
+            e.setValue(classify(e.getKey(), e.getValue().index, e.getValue().ancestors));
+        }
+        for (GrammaticalRelation rel : EnglishGrammaticalRelations.values()) {
+            entry(rel);
+        }
+    }
+
+    private DpRelations() {
+    }
+
+    /** Returns the id of the relation of the given edge */
+    public static int id(SemanticGraphEdge edge) {
+        return entry(edge.getRelation()).code & 0xFFFF;
+    }
+
+    /** Returns the categories of the relation of the given edge as a bit mask */
+    public static int categories(SemanticGraphEdge edge) {
+        return entry(edge.getRelation()).code >>> 16;
+    }
+
+    /** Checks whether <code>ancestor</code> equals <code>rel</code> or is one of its ancestors
+     * (same as {@link GrammaticalRelation#isAncestor(GrammaticalRelation)}) */
+    public static boolean isAncestor(GrammaticalRelation ancestor, GrammaticalRelation rel) {
+        if (rel == null) {
+            return false;
+        }
+        return entry(rel).ancestors.get(entry(ancestor).index);
+    }
+
+    /** Returns the indexes of the given relations for use with
+     * {@link #containsAncestor(BitSet, GrammaticalRelation)} */
+    public static BitSet indexes(Collection<GrammaticalRelation> rels) {
+        BitSet result = new BitSet();
+        for (GrammaticalRelation rel : rels) {
+            result.set(entry(rel).index);
+        }
+        return result;
+    }
+
+    /** Checks whether a relation in the given set (see {@link #indexes(Collection)}) equals
+     * <code>rel</code> or is one of its ancestors */
+    public static boolean containsAncestor(BitSet rels, GrammaticalRelation rel) {
+        if (rel == null) {
+            return false;
+        }
+        return entry(rel).ancestors.intersects(rels);
+    }
+
+    /** Returns the classification of a relation, computing it if the relation is new */
+    private static Entry entry(GrammaticalRelation rel) {
+        Entry entry = ENTRIES.get(rel);
+        if (entry == null) {
+            entry = classify(rel);
+            Entry previous = ENTRIES.putIfAbsent(rel, entry);
+            if (previous != null) {
+                entry = previous;
+            }
+        }
+        return entry;
+    }
+
+    /** Computes the classification of a relation; its ancestors are classified first */
+    private static Entry classify(GrammaticalRelation rel) {
+        int index = NEXT_INDEX.getAndIncrement();
+        BitSet ancestors = new BitSet();
+        if (rel.getParent() != null) {
+            ancestors.or(entry(rel.getParent()).ancestors);
+        }
+        ancestors.set(index);
+        return classify(rel, index, ancestors);
+    }
+
+    /** Computes the id and the categories of a relation with known ancestors */
+    private static Entry classify(GrammaticalRelation rel, int index, BitSet ancestors) {
+        int id = OTHER;
+        for (int i = 1; i < RELATIONS.length; i++) {
+            if (RELATIONS[i].equals(rel)) {
+                id = i;
+                break;
+            }
+        }
+        int categories = 0;
+        for (int i = 0; i < CATEGORIES.length; i++) {
+            if (ancestors.get(CATEGORY_INDEXES[i])) {
+                categories |= 1 << i;
+            }
+        }
+        return new Entry(index, (categories << 16) | id, ancestors);
+    }
+}
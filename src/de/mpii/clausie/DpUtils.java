@@ -1,6 +1,7 @@
 package de.mpii.clausie;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -36,7 +37,7 @@ public class DpUtils {
     public static SemanticGraphEdge findFirstOfRelationOrDescendent(List<SemanticGraphEdge> edges,
             GrammaticalRelation rel) {
         for (SemanticGraphEdge e : edges) {
-            if (rel.isAncestor(e.getRelation())) {
+            if (DpRelations.isAncestor(rel, e.getRelation())) {
                 return e;
             }
         }
@@ -48,7 +49,8 @@ public class DpUtils {
             IndexedWord root, GrammaticalRelation rel) {
         List<SemanticGraphEdge> outedges = semanticGraph.getOutEdgesSorted(root);
         for (SemanticGraphEdge e : outedges) {
-            if (e.getDependent().tag().charAt(0) == 'W' && rel.isAncestor(e.getRelation())) {
+            if (e.getDependent().tag().charAt(0) == 'W'
+                    && DpRelations.isAncestor(rel, e.getRelation())) {
                 return e;
             } else
                 return findDescendantRelativeRelation(semanticGraph, e.getDependent(), rel);
@@ -61,7 +63,7 @@ public class DpUtils {
             GrammaticalRelation rel) {
         List<SemanticGraphEdge> result = new ArrayList<SemanticGraphEdge>();
         for (SemanticGraphEdge e : edges) {
-            if (rel.isAncestor(e.getRelation())) {
+            if (DpRelations.isAncestor(rel, e.getRelation())) {
                 result.add(e);
             }
         }
@@ -75,7 +77,7 @@ public class DpUtils {
 
     /** Checks if a given edge holds a subject relation*/
     public static boolean isAnySubj(SemanticGraphEdge edge) {
-        return EnglishGrammaticalRelations.SUBJECT.isAncestor(edge.getRelation());
+        return (DpRelations.categories(edge) & DpRelations.SUBJ) != 0;
     }
 
     /** Checks if a given edge holds a nominal subject relation*/
@@ -105,7 +107,7 @@ public class DpUtils {
 
     /** Checks if a given edge holds an object relation */
     public static boolean isAnyObj(SemanticGraphEdge edge) {
-        return EnglishGrammaticalRelations.OBJECT.isAncestor(edge.getRelation());
+        return (DpRelations.categories(edge) & DpRelations.OBJ) != 0;
     }
 
     /** Checks if a given edge holds a prepositional object relation*/
@@ -175,7 +177,7 @@ public class DpUtils {
 
     /** Checks if a given edge holds a prepositional modifier relation */
     public static boolean isAnyPrep(SemanticGraphEdge edge) {
-        return EnglishGrammaticalRelations.PREPOSITIONAL_MODIFIER.isAncestor(edge.getRelation());
+        return (DpRelations.categories(edge) & DpRelations.PREP) != 0;
     }
 
     /** Checks if a given edge holds a copular relation */
@@ -240,7 +242,7 @@ public class DpUtils {
 
     /** Checks if a given edge holds a conjunct relation */
     public static boolean isAnyConj(SemanticGraphEdge edge) {
-        return EnglishGrammaticalRelations.CONJUNCT.isAncestor(edge.getRelation());
+        return (DpRelations.categories(edge) & DpRelations.CONJ) != 0;
     }
 
     /** Checks if a given edge holds a preconjunct modifier relation */
@@ -370,24 +372,21 @@ public class DpUtils {
     /** Return a set of vertexes to be excluded according to a given collection of grammatical relations */
     public static Set<IndexedWord> exclude(SemanticGraph semanticGraph,
             Collection<GrammaticalRelation> rels, IndexedWord root) {
+        return exclude(semanticGraph, DpRelations.indexes(rels), root);
+    }
+
+    /** Return a set of vertexes to be excluded according to a given set of grammatical relations
+     * ({@see DpRelations#indexes(Collection)}) */
+    public static Set<IndexedWord> exclude(SemanticGraph semanticGraph, BitSet rels,
+            IndexedWord root) {
         Set<IndexedWord> exclude = new TreeSet<IndexedWord>();
         List<SemanticGraphEdge> outedges = semanticGraph.getOutEdgesSorted(root);
         for (SemanticGraphEdge edge : outedges) {
-            if (containsAncestor(rels, edge)) {
+            if (DpRelations.containsAncestor(rels, edge.getRelation())) {
                 exclude.add(edge.getDependent());
             }
         }
         return exclude;
     }
-
-    /** Check if an edge is descendant of any grammatical relation in the given set */
-    private static boolean containsAncestor(Collection<GrammaticalRelation> rels,
-            SemanticGraphEdge edge) {
-        for (GrammaticalRelation rel : rels) {
-            if (rel.isAncestor(edge.getRelation()))
-                return true;
-        }
-        return false;
-    }
    	
 }
@@ -21,11 +21,13 @@ import edu.stanford.nlp.trees.semgraph.SemanticGraphEdge;
  * @date $LastChangedDate: 2013-04-23 00:04:28 +0200 (Tue, 23 Apr 2013) $
  * @version $LastChangedRevision: 734 $ */
 public class IndexedConstituent extends Constituent {
+    private static final long serialVersionUID = 1L;
 
     // -- member variables ------------------------------------------------------------------------
 
-	/** Semantic graph for this sentence */
-    protected static SemanticGraph sentSemanticGraph;
+	/** Semantic graph for this sentence; per thread so that different sentences can be processed
+	 * concurrently */
+    protected static final ThreadLocal<SemanticGraph> sentSemanticGraph = new ThreadLocal<SemanticGraph>();
 	
     /** Semantic graph for this constituent */
     protected SemanticGraph semanticGraph;
@@ -95,7 +97,7 @@ public class IndexedConstituent extends Constituent {
     
     /** Returns the semantic graph for this sentence ({@see #sentSemanticGraph}). */
     public SemanticGraph getSentSemanticGraph() {
-        return sentSemanticGraph;
+        return sentSemanticGraph.get();
     }
 
     /** Sets the semantic graph for this constituent ({@see #semanticGraph}). */
@@ -132,9 +134,10 @@ public class IndexedConstituent extends Constituent {
     		if(DpUtils.isRel(edge))
     			return true;
     		if(DpUtils.isAnyPrep(edge)) {
-    			List<IndexedWord> ancestors = sentSemanticGraph.getParentList(parent);
+    			SemanticGraph sentGraph = sentSemanticGraph.get();
+    			List<IndexedWord> ancestors = sentGraph.getParentList(parent);
     			for(IndexedWord ancestor: ancestors) {
-    				SemanticGraphEdge ed = sentSemanticGraph.getEdge(ancestor, parent);
+    				SemanticGraphEdge ed = sentGraph.getEdge(ancestor, parent);
     				if(DpUtils.isRcmod(ed))
     					return true;
     			}
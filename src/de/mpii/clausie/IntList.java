@@ -0,0 +1,92 @@
+package de.mpii.clausie;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/** A growable list of {@code int} values that does not box its elements.
+ *
+ * Used for the positions of constituents in a {@link Clause}. {@link #clear()} keeps the
+ * underlying array so that a list can be reused across sentences.
+ *
+ * @date $ $
+ * @version $ $ */
+class IntList implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/** Initial number of slots */
+	private static final int INITIAL_CAPACITY = 4;
+
+	/** Elements of the list; only the first {@link #size} are valid */
+	private int[] elements;
+
+	/** Number of elements in the list */
+	private int size = 0;
+
+	public IntList() {
+		elements = new int[INITIAL_CAPACITY];
+	}
+
+	/** Creates a copy of the given list */
+	public IntList(IntList other) {
+		elements = Arrays.copyOf(other.elements, Math.max(other.size, INITIAL_CAPACITY));
+		size = other.size;
+	}
+
+	/** Appends a value to the list */
+	public void add(int value) {
+		if (size == elements.length) {
+			elements = Arrays.copyOf(elements, 2 * elements.length);
+		}
+		elements[size++] = value;
+	}
+
+	/** Returns the value at the given position */
+	public int get(int index) {
+		if (index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		return elements[index];
+	}
+
+	/** Checks whether the list contains the given value */
+	public boolean contains(int value) {
+		for (int i = 0; i < size; i++) {
+			if (elements[i] == value) return true;
+		}
+		return false;
+	}
+
+	/** Returns the number of values in the list */
+	public int size() {
+		return size;
+	}
+
+	/** Checks whether the list is empty */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/** Removes all values but keeps the allocated space */
+	public void clear() {
+		size = 0;
+	}
+
+	/** Replaces the values of this list by the values of the given list */
+	public void setAll(IntList other) {
+		if (elements.length < other.size) {
+			elements = new int[other.size];
+		}
+		System.arraycopy(other.elements, 0, elements, 0, other.size);
+		size = other.size;
+	}
+
+	/** Returns the values of the list as a new array */
+	public int[] toArray() {
+		return Arrays.copyOf(elements, size);
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(toArray());
+	}
+}
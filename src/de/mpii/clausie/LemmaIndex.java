@@ -0,0 +1,40 @@
+package de.mpii.clausie;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** Assigns consecutive integer ids to the lemmas that appear in the dictionaries of an
+ * {@link Options} instance.
+ * 
+ * Each word of a sentence is looked up once (see {@link SentenceTokens#lemmaId(edu.stanford.nlp.ling.IndexedWord)});
+ * dictionary membership checks then test a single bit (see {@link Dictionary#contains(int)}).
+ * Lemmas that do not appear in any dictionary have id -1.
+ * 
+ * @date $ $
+ * @version $ $ */
+public class LemmaIndex {
+	
+	/** Id of each known lemma */
+	private final Map<String, Integer> ids = new HashMap<String, Integer>();
+	
+	/** Returns the id of a lemma; a new id is assigned if the lemma is not yet known */
+	public int add(String lemma) {
+		Integer id = ids.get(lemma);
+		if (id == null) {
+			id = ids.size();
+			ids.put(lemma, id);
+		}
+		return id;
+	}
+	
+	/** Returns the id of a lemma or -1 if it is not known */
+	public int id(String lemma) {
+		Integer id = ids.get(lemma);
+		return id == null ? -1 : id;
+	}
+	
+	/** Returns the number of known lemmas */
+	public int size() {
+		return ids.size();
+	}
+}
@@ -0,0 +1,283 @@
+package de.mpii.clausie;
+
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.objectbank.TokenizerFactory;
+import edu.stanford.nlp.pipeline.ParserAnnotatorUtils;
+import edu.stanford.nlp.process.CoreLabelTokenFactory;
+import edu.stanford.nlp.process.PTBTokenizer;
+import edu.stanford.nlp.trees.Tree;
+import edu.stanford.nlp.trees.TreeFactory;
+import edu.stanford.nlp.trees.semgraph.SemanticGraph;
+
+/** Routes sentences to different ways of parsing depending on their length in tokens.
+ *
+ * The router is configured with a list of tiers, each of which covers the sentences up to a
+ * maximum number of tokens and specifies an {@link Action}: parse the sentence normally, split
+ * it at top-level semicolons and colons and parse the pieces, parse it with a cheaper backend, or
+ * skip it. Skipped sentences cause a {@link SkippedException}. The number of sentences and the
+ * time spent in each tier are recorded; backends obtained from {@link #fork()} share the tiers and
+ * hence the statistics.
+ *
+ * The router expects raw sentences, i.e., it cannot be used on top of a {@link PreParsedBackend}.
+ *
+ * @date $ $
+ * @version $ $ */
+public class LengthRouter implements ParserBackend {
+
+	/** What to do with the sentences of a tier */
+	public enum Action {
+		/** Parse with the main backend */
+		PARSE,
+		/** Split at top-level semicolons and colons and parse the pieces with the main backend */
+		SPLIT,
+		/** Parse with the cheap backend */
+		CHEAP,
+		/** Do not parse */
+		SKIP
+	}
+
+	/** Sentences up to a maximum number of tokens */
+	public static final class Tier {
+		/** Maximum number of tokens ({@link Integer#MAX_VALUE} for no limit) */
+		final int maxTokens;
+
+		final Action action;
+
+		/** Number of sentences routed to this tier */
+		final AtomicLong sentences = new AtomicLong();
+
+		/** Time spent on the sentences of this tier in nanoseconds */
+		final AtomicLong nanos = new AtomicLong();
+
+		public Tier(int maxTokens, Action action) {
+			this.maxTokens = maxTokens;
+			this.action = action;
+		}
+
+		/** Returns the number of sentences routed to this tier */
+		public long getSentences() {
+			return sentences.get();
+		}
+
+		/** Returns the time spent on the sentences of this tier in milliseconds */
+		public long getMillis() {
+			return nanos.get() / 1000000;
+		}
+
+		@Override
+		public String toString() {
+			return (maxTokens == Integer.MAX_VALUE ? "*" : String.valueOf(maxTokens)) + ":"
+					+ action.name().toLowerCase();
+		}
+	}
+
+	/** Thrown for sentences that are routed to a tier with action {@link Action#SKIP} */
+	public static class SkippedException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		/** Number of tokens of the sentence */
+		final int noTokens;
+
+		SkippedException(int noTokens) {
+			super("Sentence skipped (" + noTokens + " tokens)");
+			this.noTokens = noTokens;
+		}
+
+		/** Returns the number of tokens of the skipped sentence */
+		public int getNoTokens() {
+			return noTokens;
+		}
+	}
+
+	private final ParserBackend backend;
+
+	/** Backend for {@link Action#CHEAP} (null if not used) */
+	private final ParserBackend cheapBackend;
+
+	/** Tiers in order of increasing maximum number of tokens; the last tier has no limit */
+	private final List<Tier> tiers;
+
+	private final TokenizerFactory<CoreLabel> tokenizerFactory;
+
+	/** Creates a router with the given tiers; sentences longer than the limit of all tiers are
+	 * parsed with {@code backend}. {@code cheapBackend} may be null if no tier uses
+	 * {@link Action#CHEAP}. */
+	public LengthRouter(ParserBackend backend, ParserBackend cheapBackend, List<Tier> tiers) {
+		this(backend, cheapBackend, completeTiers(tiers, cheapBackend != null), PTBTokenizer
+				.factory(new CoreLabelTokenFactory(), ""));
+	}
+
+	private LengthRouter(ParserBackend backend, ParserBackend cheapBackend, List<Tier> tiers,
+			TokenizerFactory<CoreLabel> tokenizerFactory) {
+		this.backend = backend;
+		this.cheapBackend = cheapBackend;
+		this.tiers = tiers;
+		this.tokenizerFactory = tokenizerFactory;
+	}
+
+	/** Checks and sorts the given tiers and adds a tier without limit if there is none */
+	private static List<Tier> completeTiers(List<Tier> tiers, boolean hasCheapBackend) {
+		List<Tier> result = new ArrayList<Tier>(tiers);
+		for (Tier tier : result) {
+			if (tier.action == Action.CHEAP && !hasCheapBackend) {
+				throw new IllegalArgumentException("Tier " + tier + " requires a cheap backend");
+			}
+		}
+		Collections.sort(result, new Comparator<Tier>() {
+			@Override
+			public int compare(Tier t1, Tier t2) {
+				return t1.maxTokens < t2.maxTokens ? -1 : (t1.maxTokens == t2.maxTokens ? 0 : 1);
+			}
+		});
+		if (result.isEmpty() || result.get(result.size() - 1).maxTokens != Integer.MAX_VALUE) {
+			result.add(new Tier(Integer.MAX_VALUE, Action.PARSE));
+		}
+		return Collections.unmodifiableList(result);
+	}
+
+	/** Parses a specification of tiers of the form <code>70:parse,120:split,*:skip</code>, where
+	 * each tier is given by its maximum number of tokens (<code>*</code> for no limit) and the
+	 * name of its action */
+	public static List<Tier> parseTiers(String spec) {
+		List<Tier> tiers = new ArrayList<Tier>();
+		for (String part : spec.split(",")) {
+			part = part.trim();
+			int colon = part.indexOf(':');
+			if (colon < 0) {
+				throw new IllegalArgumentException("Invalid tier: " + part);
+			}
+			String limit = part.substring(0, colon).trim();
+			int maxTokens = limit.equals("*") ? Integer.MAX_VALUE : Integer.parseInt(limit);
+			Action action = Action.valueOf(part.substring(colon + 1).trim().toUpperCase());
+			tiers.add(new Tier(maxTokens, action));
+		}
+		return tiers;
+	}
+
+	/** Returns the tiers */
+	public List<Tier> getTiers() {
+		return tiers;
+	}
+
+	@Override
+	public Parse parse(String sentence) {
+		List<CoreLabel> tokens = tokenizerFactory.getTokenizer(new StringReader(sentence))
+				.tokenize();
+		Tier tier = tiers.get(tiers.size() - 1);
+		for (Tier t : tiers) {
+			if (tokens.size() <= t.maxTokens) {
+				tier = t;
+				break;
+			}
+		}
+		long start = System.nanoTime();
+		try {
+			switch (tier.action) {
+			case PARSE:
+				return backend.parse(sentence);
+			case SPLIT:
+				return parsePieces(sentence, tokens);
+			case CHEAP:
+				return cheapBackend.parse(sentence);
+			default:
+				throw new SkippedException(tokens.size());
+			}
+		} finally {
+			tier.sentences.incrementAndGet();
+			tier.nanos.addAndGet(System.nanoTime() - start);
+		}
+	}
+
+	/** Splits a sentence at top-level semicolons and colons, parses each piece and combines the
+	 * parses of the pieces into a single tree */
+	private Parse parsePieces(String sentence, List<CoreLabel> tokens) {
+		// find separators that are not within brackets or quotes
+		List<Integer> separators = new ArrayList<Integer>();
+		int depth = 0;
+		for (int i = 0; i < tokens.size(); i++) {
+			String word = tokens.get(i).word();
+			if (word.equals("-LRB-") || word.equals("-LSB-") || word.equals("-LCB-")
+					|| word.equals("``")) {
+				depth++;
+			} else if (word.equals("-RRB-") || word.equals("-RSB-") || word.equals("-RCB-")
+					|| word.equals("''")) {
+				depth = Math.max(0, depth - 1);
+			} else if (depth == 0 && (word.equals(";") || word.equals(":")) && i > 0
+					&& i < tokens.size() - 1
+					&& (separators.isEmpty() || separators.get(separators.size() - 1) < i - 1)) {
+				// each piece has at least one token; a separator right after another one stays
+				// in the next piece
+				separators.add(i);
+			}
+		}
+		if (separators.isEmpty()) {
+			return backend.parse(sentence);
+		}
+
+		// parse the pieces
+		List<Tree> children = new ArrayList<Tree>();
+		TreeFactory tf = null;
+		double score = 0;
+		int begin = 0;
+		for (int s = 0; s <= separators.size(); s++) {
+			int end = s < separators.size() ? separators.get(s) : tokens.size();
+			String piece = sentence.substring(tokens.get(begin).beginPosition(),
+					tokens.get(end - 1).endPosition());
+			Parse parse = backend.parse(piece);
+			if (parse.tree == null) {
+				throw new IllegalStateException("Splitting requires the constituency tree");
+			}
+			score += parse.score;
+			tf = parse.tree.treeFactory();
+			Tree root = parse.tree;
+			if (root.value().equals("ROOT") && root.numChildren() > 0) {
+				Collections.addAll(children, root.children());
+			} else {
+				children.add(root);
+			}
+			if (s < separators.size()) {
+				String word = tokens.get(end).word();
+				Tree leaf = tf.newLeaf(word);
+				if (leaf.label() instanceof CoreLabel) {
+					((CoreLabel) leaf.label()).setWord(word);
+					((CoreLabel) leaf.label()).setOriginalText(tokens.get(end).originalText());
+				}
+				children.add(tf.newTreeNode(":", Collections.singletonList(leaf)));
+			}
+			begin = end + 1;
+		}
+		Tree tree = tf.newTreeNode("ROOT", children);
+		tree.indexLeaves(true);
+		SemanticGraph semanticGraph = ParserAnnotatorUtils.generateUncollapsedDependencies(tree);
+		return new Parse(tree, semanticGraph, score);
+	}
+
+	/** Returns a router that forks the backends of this router and shares its tiers */
+	@Override
+	public ParserBackend fork() {
+		return new LengthRouter(backend.fork(), cheapBackend == null ? null : cheapBackend.fork(),
+				tiers, tokenizerFactory);
+	}
+
+	/** Prints the number of sentences and the time spent in each tier */
+	public void printStatistics(PrintStream out, String prefix) {
+		for (Tier tier : tiers) {
+			out.print(prefix);
+			out.print("Tier ");
+			out.print(tier);
+			out.print(": ");
+			out.print(tier.getSentences());
+			out.print(" sentence(s), ");
+			out.print(tier.getMillis());
+			out.println(" ms");
+		}
+	}
+}
@@ -0,0 +1,143 @@
+package de.mpii.clausie;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+
+/** Processes input in the line format of the ClausIE command-line interface: one sentence per
+ * line, optionally preceded by an identifier and a tab; empty lines and lines starting with
+ * <code>#</code> are skipped. The propositions of each sentence are printed as lines of
+ * tab-separated fields.
+ *
+ * Used by {@link ClausIE#main(String[])} and by {@link ClausIEDaemon} for each connection.
+ *
+ * @date $ $
+ * @version $ $ */
+class LineProcessor {
+
+	/** Instance used to process the sentences */
+	private final ClausIE clausIE;
+
+	/** Output */
+	private final PrintStream dout;
+
+	/** Whether the sentence identifier is read from the input */
+	boolean readIds = false;
+
+	/** Whether verbose output is produced */
+	boolean verbose = false;
+
+	/** Whether each sentence is printed before its propositions */
+	boolean printSentence = false;
+
+	/** Whether the score of the parse is printed with each proposition */
+	boolean printScore = false;
+
+	/** Receives the clauses of each sentence (null if clauses are not stored) */
+	ClauseStore.Writer clauseWriter = null;
+
+	/** Skips sentences that cannot contain a clause (null if all sentences are processed) */
+	ClauseFilter clauseFilter = null;
+
+	/** Whether sentences rejected by {@link #clauseFilter} are still processed in order to
+	 * measure its recall */
+	boolean measureFilter = false;
+
+	LineProcessor(ClausIE clausIE, PrintStream dout) {
+		this.clausIE = clausIE;
+		this.dout = dout;
+	}
+
+	/** Processes all lines of the given input */
+	public void process(BufferedReader reader) throws IOException {
+		int lineNo = 1;
+		for (String line = reader.readLine(); line != null; line = reader.readLine(), lineNo++) {
+			process(lineNo, line);
+		}
+	}
+
+	/** Processes a single line of input */
+	public void process(int lineNo, String line) throws IOException {
+		line = line.trim();
+		if (line.isEmpty() || line.startsWith("#"))
+			return;
+		int sentenceId = lineNo;
+		if (readIds) {
+			int tabIndex = line.indexOf('\t');
+			sentenceId = Integer.parseInt(line.substring(0, tabIndex));
+			line = line.substring(tabIndex + 1).trim();
+		}
+		if (verbose) {
+			dout.print("# Line ");
+			dout.print(lineNo);
+			if (readIds) {
+				dout.print(" (id ");
+				dout.print(sentenceId);
+				dout.print(")");
+			}
+			dout.print(": ");
+			dout.print(line);
+			dout.println();
+		}
+		PropositionSink sink = ClausIE.printingSink(sentenceId, clausIE, dout, printScore);
+		try {
+			process(sentenceId, line, sink);
+		} catch (LengthRouter.SkippedException e) {
+			dout.print("# Skipped ");
+			dout.print(sentenceId);
+			dout.print(": ");
+			dout.print(e.getNoTokens());
+			dout.println(" tokens");
+			return;
+		}
+		if (verbose && clausIE.isTruncated()) {
+			dout.println("#   Proposition budget exceeded; output truncated.");
+		}
+	}
+
+	/** Processes a sentence */
+	private void process(int sentenceId, String line, PropositionSink sink) throws IOException {
+		boolean accepted = true;
+		if (clauseFilter != null) {
+			accepted = clauseFilter.mayHaveClause(line);
+			if (!accepted && verbose) {
+				dout.println("#   Rejected by clause filter.");
+			}
+			if (!accepted && !measureFilter) {
+				clausIE.clear();
+				return;
+			}
+		}
+		if (clausIE.getCache() != null) {
+			if (printSentence) {
+				dout.print(line);
+				dout.println();
+			}
+			if (clausIE.extract(line, sink) && verbose) {
+				dout.println("#   Propositions taken from cache.");
+			}
+		} else {
+			clausIE.parse(line);
+			if (verbose) {
+				dout.print("# Semantic graph: ");
+				dout.println(clausIE.getSemanticGraph().toFormattedString()
+						.replaceAll("\n", "\n#                ").trim());
+			}
+			clausIE.detectClauses();
+			if (measureFilter) {
+				clauseFilter.record(accepted, !clausIE.getClauses().isEmpty());
+			}
+			if (verbose) {
+				ClausIE.printClauses(clausIE, dout);
+			}
+			if (clauseWriter != null) {
+				clauseWriter.write(sentenceId, line, clausIE);
+			}
+			if (printSentence) {
+				dout.print(line);
+				dout.println();
+			}
+			clausIE.generatePropositions(sink);
+		}
+	}
+}
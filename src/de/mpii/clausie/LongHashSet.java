@@ -0,0 +1,90 @@
+package de.mpii.clausie;
+
+import java.util.Arrays;
+
+/** A set of {@code long} values based on open addressing with linear probing. 
+ * 
+ * The set is meant to be reused: {@link #clear()} keeps the table unless it grew beyond
+ * {@link #MAX_RETAINED_CAPACITY}, in which case it shrinks back to its initial size.
+ * 
+ * @date $ $
+ * @version $ $ */
+class LongHashSet {
+	/** Initial number of slots */
+	private static final int INITIAL_CAPACITY = 64;
+	
+	/** Largest number of slots kept when the set is cleared */
+	private static final int MAX_RETAINED_CAPACITY = 1 << 12;
+	
+	/** Slots of the table; 0 marks an empty slot */
+	private long[] keys = new long[INITIAL_CAPACITY];
+	
+	/** Whether the value 0 (which cannot be stored in {@link #keys}) is contained */
+	private boolean containsZero = false;
+	
+	/** Number of values in the set */
+	private int size = 0;
+	
+	/** Adds a value to the set. Returns false if the value was already contained. */
+	public boolean add(long key) {
+		if (key == 0) {
+			if (containsZero) return false;
+			containsZero = true;
+			size++;
+			return true;
+		}
+		int mask = keys.length - 1;
+		int slot = mix(key) & mask;
+		while (keys[slot] != 0) {
+			if (keys[slot] == key) return false;
+			slot = (slot + 1) & mask;
+		}
+		keys[slot] = key;
+		size++;
+		if (2 * size > keys.length) {
+			rehash(2 * keys.length);
+		}
+		return true;
+	}
+	
+	/** Returns the number of values in the set */
+	public int size() {
+		return size;
+	}
+	
+	/** Removes all values from the set */
+	public void clear() {
+		if (keys.length > MAX_RETAINED_CAPACITY) {
+			keys = new long[INITIAL_CAPACITY];
+		} else if (size > 0) {
+			Arrays.fill(keys, 0);
+		}
+		containsZero = false;
+		size = 0;
+	}
+	
+	/** Moves all values into a table with the given number of slots */
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		keys = new long[capacity];
+		int mask = capacity - 1;
+		for (long key : oldKeys) {
+			if (key == 0) continue;
+			int slot = mix(key) & mask;
+			while (keys[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			keys[slot] = key;
+		}
+	}
+	
+	/** Spreads the bits of a value (finalizer of MurmurHash3) */
+	private static int mix(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+}
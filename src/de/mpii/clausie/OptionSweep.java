@@ -0,0 +1,161 @@
+package de.mpii.clausie;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import joptsimple.OptionException;
+import joptsimple.OptionParser;
+import joptsimple.OptionSet;
+
+/** Processes sentences with several {@link Options} configurations at once.
+ *
+ * Each sentence is parsed only once; the parse is then handed to one ClausIE instance per
+ * configuration ({@link ClausIE#adoptParse(ClausIE)}), which detects clauses and generates
+ * propositions with its own options. Useful to compare configurations on a corpus.
+ *
+ * @date $ $
+ * @version $ $ */
+public class OptionSweep {
+
+	/** Instance used for parsing */
+	private final ClausIE parser;
+
+	/** One instance per configuration */
+	private final ClausIE[] variants;
+
+	/** Creates a sweep over the given configurations; {@code parser} must have been initialized
+	 * ({@link ClausIE#initParser()}) */
+	public OptionSweep(ClausIE parser, List<Options> configurations) {
+		this.parser = parser;
+		variants = new ClausIE[configurations.size()];
+		for (int i=0; i<variants.length; i++) {
+			variants[i] = new ClausIE(configurations.get(i));
+		}
+	}
+
+	/** Returns the number of configurations */
+	public int size() {
+		return variants.length;
+	}
+
+	/** Returns the instance that processes the i-th configuration */
+	public ClausIE getVariant(int i) {
+		return variants[i];
+	}
+
+	/** Parses a sentence once and passes the propositions generated with the i-th configuration
+	 * to {@code sinks[i]} */
+	public void process(String sentence, PropositionSink[] sinks) {
+		if (sinks.length != variants.length) {
+			throw new IllegalArgumentException("Expected " + variants.length + " sinks");
+		}
+		parser.parse(sentence);
+		for (int i=0; i<variants.length; i++) {
+			variants[i].adoptParse(parser);
+			variants[i].detectClauses();
+			variants[i].generatePropositions(sinks[i]);
+		}
+		parser.clear();
+	}
+
+	// -- command-line interface
+	// ------------------------------------------------------------------
+
+	public static void main(String[] args) throws IOException {
+		OptionParser optionParser = new OptionParser();
+		optionParser
+				.accepts("f", "input file (if absent, reads from stdin)")
+				.withRequiredArg().describedAs("file").ofType(String.class);
+		optionParser
+				.accepts("l",
+						"if set, sentence identifier is read from input file (with lines of form: <id>\\t<sentence>)");
+		optionParser
+				.accepts("o",
+						"output prefix; the output of the i-th configuration is written to <prefix>.<i>")
+				.withRequiredArg().describedAs("prefix").ofType(String.class);
+		optionParser
+				.accepts("c", "configuration file (repeat once per configuration)")
+				.withRequiredArg().describedAs("file").ofType(String.class);
+		optionParser
+				.accepts("model", "parser model (.ser.gz, or a gunzipped copy to skip the decompression)")
+				.withRequiredArg().describedAs("file").ofType(String.class);
+		optionParser.accepts("v", "verbose output");
+		optionParser.accepts("h", "print help");
+		optionParser.accepts("p", "print sentence confidence");
+		final OptionSet options;
+		try {
+			options = optionParser.parse(args);
+		} catch (OptionException e) {
+			System.err.println(e.getMessage());
+			optionParser.printHelpOn(System.out);
+			return;
+		}
+		if (options.has("h") || !options.has("o") || !options.has("c")) {
+			optionParser.printHelpOn(System.out);
+			return;
+		}
+
+		// setup configurations and outputs
+		List<?> configurationFiles = options.valuesOf("c");
+		List<Options> configurations = new ArrayList<Options>();
+		for (Object file : configurationFiles) {
+			configurations.add(new Options((String) file));
+		}
+		ClausIE parser = new ClausIE();
+		if (options.has("model")) {
+			parser.initParser((String) options.valueOf("model"));
+		} else {
+			parser.initParser();
+		}
+		OptionSweep sweep = new OptionSweep(parser, configurations);
+		String prefix = (String) options.valueOf("o");
+		PrintStream[] outs = new PrintStream[sweep.size()];
+		for (int i=0; i<outs.length; i++) {
+			outs[i] = new PrintStream(new FileOutputStream(prefix + "." + (i + 1)));
+			if (options.has("v")) {
+				outs[i].println("# Configuration " + configurationFiles.get(i));
+				configurations.get(i).print(outs[i], "# ");
+			}
+		}
+
+		// run
+		InputStream in = System.in;
+		if (options.has("f")) {
+			in = new FileInputStream((String) options.valueOf("f"));
+		}
+		BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
+		PropositionSink[] sinks = new PropositionSink[outs.length];
+		int lineNo = 1;
+		for (String line = reader.readLine(); line != null; line = reader.readLine(), lineNo++) {
+			line = line.trim();
+			if (line.isEmpty() || line.startsWith("#"))
+				continue;
+			int sentenceId = lineNo;
+			if (options.has("l")) {
+				int tabIndex = line.indexOf('\t');
+				sentenceId = Integer.parseInt(line.substring(0, tabIndex));
+				line = line.substring(tabIndex + 1).trim();
+			}
+			for (int i=0; i<outs.length; i++) {
+				sinks[i] = ClausIE.printingSink(sentenceId, sweep.getVariant(i), outs[i],
+						options.has("p"));
+			}
+			sweep.process(line, sinks);
+		}
+
+		// shutdown
+		if (options.has("f")) {
+			in.close();
+		}
+		for (PrintStream out : outs) {
+			out.close();
+		}
+	}
+}
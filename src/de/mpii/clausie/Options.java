@@ -8,8 +8,10 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.PrintStream;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 
@@ -20,6 +22,48 @@ import edu.stanford.nlp.ling.IndexedWord;
  * @date $LastChangedDate: 2013-04-24 11:35:23 +0200 (Wed, 24 Apr 2013) $
  * @version $LastChangedRevision: 739 $ */
 public class Options {
+	/** Named adjustments of a set of options that trade the completeness of the output for
+	 * speed, e.g., to keep the latency of a service low under load */
+	public enum Profile {
+		/** The options as they are */
+		FULL,
+		/** Coordinating conjunctions are not expanded into alternatives and xcomps are not
+		 * expanded during proposition generation; the detected clauses are those of
+		 * {@link #FULL} */
+		FAST,
+		/** As {@link #FAST}, and only subject, verb and object: triples without optional
+		 * constituents and no clauses for appositions, possessives and participial modifiers */
+		MINIMAL;
+
+		/** Returns a copy of the given options adjusted to this profile */
+		public Options apply(Options options) {
+			Options result = new Options(options);
+			if (this != FULL) {
+				result.expandConjunctions = false;
+				result.processXcomps = false;
+			}
+			if (this == MINIMAL) {
+				result.processAppositions = false;
+				result.processPossessives = false;
+				result.processPartmods = false;
+				result.nary = false;
+				result.minOptionalArgs = 0;
+				result.maxOptionalArgs = 0;
+			}
+			return result;
+		}
+
+		/** Returns the profile of the given name (case-insensitive) */
+		public static Profile forName(String name) {
+			return valueOf(name.toUpperCase());
+		}
+
+		@Override
+		public String toString() {
+			return name().toLowerCase();
+		}
+	}
+
 	// informatin
 	public Dictionary dictCopular;
 	public Dictionary dictExtCopular;
@@ -28,6 +72,7 @@ public class Options {
 	public Dictionary dictAdverbsConj;
 	public Dictionary dictAdverbsIgnore;
 	public Dictionary dictAdverbsInclude;
+	public LemmaIndex lemmaIndex; // ids of the words of all dictionaries
 	public boolean conservativeSVA;
 	public boolean conservativeSVOA;
 	
@@ -53,11 +98,18 @@ public class Options {
 	
 	// representation
 	public boolean nary;
+	public boolean expandConjunctions; // generate a proposition per conjunct (see processCc*)
+	public boolean processXcomps; // expand xcomps into the propositions of their clauses
 	public int minOptionalArgs; // only when nary=false
 	public int maxOptionalArgs; // only when nary=false
 	public boolean lemmatize;
 	public String appositionVerb;
 	public String possessiveVerb;
+	public boolean deduplicate;
+	
+	// limits
+	public int maxPropositionsPerClause; // 0 for no limit
+	public int maxPropositionsPerSentence; // 0 for no limit
 	
 	//helpds
 	
@@ -80,6 +132,36 @@ public class Options {
 		in.close();		
 	}
 	
+	/**Constructs a copy of the given options; the dictionaries are shared*/
+	public Options(Options other) {
+		dictCopular = other.dictCopular;
+		dictExtCopular = other.dictExtCopular;
+		dictNotExtCopular = other.dictNotExtCopular;
+		dictComplexTransitive = other.dictComplexTransitive;
+		dictAdverbsConj = other.dictAdverbsConj;
+		dictAdverbsIgnore = other.dictAdverbsIgnore;
+		dictAdverbsInclude = other.dictAdverbsInclude;
+		lemmaIndex = other.lemmaIndex;
+		conservativeSVA = other.conservativeSVA;
+		conservativeSVOA = other.conservativeSVOA;
+		processCcAllVerbs = other.processCcAllVerbs;
+		processCcNonVerbs = other.processCcNonVerbs;
+		processAppositions = other.processAppositions;
+		processPossessives = other.processPossessives;
+		processPartmods = other.processPartmods;
+		nary = other.nary;
+		expandConjunctions = other.expandConjunctions;
+		processXcomps = other.processXcomps;
+		minOptionalArgs = other.minOptionalArgs;
+		maxOptionalArgs = other.maxOptionalArgs;
+		lemmatize = other.lemmatize;
+		appositionVerb = other.appositionVerb;
+		possessiveVerb = other.possessiveVerb;
+		deduplicate = other.deduplicate;
+		maxPropositionsPerClause = other.maxPropositionsPerClause;
+		maxPropositionsPerSentence = other.maxPropositionsPerSentence;
+	}
+	
 	private InputStream openFileOrResource(String name) throws IOException {
 		try {
 			File file = new File(name);
@@ -113,6 +195,13 @@ public class Options {
 		minOptionalArgs = Integer.parseInt(getProperty(prop, "minOptionalArgs"));
 		maxOptionalArgs = Integer.parseInt(getProperty(prop, "maxOptionalArgs"));
 		
+		// load the optional options
+		expandConjunctions = Boolean.parseBoolean(getProperty(prop, "expandConjunctions", "true"));
+		processXcomps = Boolean.parseBoolean(getProperty(prop, "processXcomps", "true"));
+		deduplicate = Boolean.parseBoolean(getProperty(prop, "deduplicate", "false"));
+		maxPropositionsPerClause = Integer.parseInt(getProperty(prop, "maxPropositionsPerClause", "0"));
+		maxPropositionsPerSentence = Integer.parseInt(getProperty(prop, "maxPropositionsPerSentence", "0"));
+		
 		// get dictionaries
 		dictCopular = getDictionary(prop, "dictCopular");
 		dictExtCopular = getDictionary(prop, "dictExtCopular");
@@ -121,6 +210,7 @@ public class Options {
 		dictAdverbsConj = getDictionary(prop, "dictAdverbsConj");
 		dictAdverbsIgnore = getDictionary(prop, "dictAdverbsIgnore");
 		dictAdverbsInclude = getDictionary(prop, "dictAdverbsInclude");
+		compileDictionaries();
 		
 		// check for unused properties
 		if (!prop.isEmpty()) {
@@ -139,6 +229,13 @@ public class Options {
 		return result;
 	}
 	
+	/** Returns an optional option (key) or the given default value if it is absent */
+	private String getProperty(Properties prop, String key, String defaultValue) {
+		String result = prop.getProperty(key, defaultValue);
+		prop.remove(key);
+		return result;
+	}
+	
 	/**Loads a dictionary (key) */
 	private Dictionary getDictionary(Properties prop, String key) throws IOException {
 		String name = getProperty(prop, key);
@@ -149,6 +246,17 @@ public class Options {
 		return dict;
 	}
 	
+	/** Assigns lemma ids to the words of all dictionaries ({@see #lemmaIndex}). Must be called
+	 * again when a dictionary is modified. */
+	public void compileDictionaries() {
+		lemmaIndex = new LemmaIndex();
+		Dictionary[] dictionaries = { dictCopular, dictExtCopular, dictNotExtCopular,
+				dictComplexTransitive, dictAdverbsConj, dictAdverbsIgnore, dictAdverbsInclude };
+		for (Dictionary dictionary : dictionaries) {
+			dictionary.compile(lemmaIndex);
+		}
+	}
+	
 	/**Checks if the copular dictionary contains a given word*/
 	public boolean isCop(IndexedWord word) {
 		return dictCopular.contains(word);
@@ -169,6 +277,106 @@ public class Options {
 		return dictComplexTransitive.contains(word);
 	}
 
+	/**Checks if the copular dictionary contains a given lemma id ({@see #lemmaIndex})*/
+	public boolean isCop(int lemmaId) {
+		return dictCopular.contains(lemmaId);
+	}
+
+	/**Checks if the extended copular dictionary contains a given lemma id*/
+	public boolean isExtCop(int lemmaId) {
+		return dictExtCopular.contains(lemmaId);
+	}
+
+	/**Checks if the non-extended copular dictionary contains a given lemma id*/
+	public boolean isNotExtCop(int lemmaId) {
+		return dictNotExtCopular.contains(lemmaId);
+	}
+	
+	/**Checks if the complex transitive dictionary contains a given lemma id*/
+	public boolean isComTran(int lemmaId) {
+		return dictComplexTransitive.contains(lemmaId);
+	}
+
+	/** Returns the values of all options that affect the output of ClausIE, including the
+	 * contents of the dictionaries. Options with equal keys produce equal output. The contents
+	 * of the dictionaries are canonicalized when they are compiled
+	 * ({@link #compileDictionaries()}), so the key is cheap enough to be built for every
+	 * sentence. */
+	public List<Object> key() {
+		List<Object> key = detectionKey();
+		key.addAll(representationKey());
+		return key;
+	}
+	
+	/** Returns the values of the options that affect clause detection (the dictionaries and 
+	 * the options of the CLAUSE DETECTION section that are used by the detector, including the
+	 * processing of coordinating conjunctions). Clauses detected with options of equal detection
+	 * keys are equal. */
+	public List<Object> detectionKey() {
+		List<Object> key = new ArrayList<Object>();
+		Dictionary[] dictionaries = { dictCopular, dictExtCopular, dictNotExtCopular,
+				dictComplexTransitive, dictAdverbsConj, dictAdverbsIgnore, dictAdverbsInclude };
+		for (Dictionary dictionary : dictionaries) {
+			key.add(dictionary.canonicalWords());
+		}
+		key.add(conservativeSVA);
+		key.add(conservativeSVOA);
+		key.add(processAppositions);
+		key.add(processPossessives);
+		key.add(processPartmods);
+		key.add(processCcAllVerbs);
+		key.add(processCcNonVerbs);
+		return key;
+	}
+	
+	/** Returns the values of the options that only affect the generation of propositions 
+	 * out of detected clauses. */
+	public List<Object> representationKey() {
+		List<Object> key = new ArrayList<Object>();
+		key.add(nary);
+		key.add(expandConjunctions);
+		key.add(processXcomps);
+		key.add(minOptionalArgs);
+		key.add(maxOptionalArgs);
+		key.add(lemmatize);
+		key.add(appositionVerb);
+		key.add(possessiveVerb);
+		key.add(deduplicate);
+		key.add(maxPropositionsPerClause);
+		key.add(maxPropositionsPerSentence);
+		return key;
+	}
+	
+	/** Returns a 64-bit hash of {@link #key()}. Options with equal output have equal 
+	 * fingerprints, but options with equal fingerprints need not have equal output. */
+	public long fingerprint() {
+		return hash(key());
+	}
+	
+	/** Returns a 64-bit hash of {@link #detectionKey()} */
+	public long detectionFingerprint() {
+		return hash(detectionKey());
+	}
+	
+	/** Returns a 64-bit hash of {@link #representationKey()} */
+	public long representationFingerprint() {
+		return hash(representationKey());
+	}
+	
+	/** Returns a 64-bit hash of the given values */
+	private static long hash(List<Object> values) {
+		long h = Phrase.FNV_OFFSET_BASIS;
+		for (Object value : values) {
+			h = mix(h, value == null ? 0 : value.hashCode());
+		}
+		return h;
+	}
+	
+	/** Continues the hash {@code h} with the value {@code v} */
+	private static long mix(long h, long v) {
+		return (h ^ v) * Phrase.FNV_PRIME;
+	}
+
 	/**Returns a string with some initial words of a given dictionary*/
 	private String someWords(Set<String> dict) {
 		if (dict.isEmpty()) return "";
@@ -213,10 +421,18 @@ public class Options {
 		pout.println(prefix + "");
 		pout.println(prefix + "REPRESENTATION");		
 		pout.println(prefix + "  n-ary propositions  : " + nary);
+		pout.println(prefix + "  Expand conjunctions : " + expandConjunctions);
+		pout.println(prefix + "  Expand xcomps       : " + processXcomps);
 		pout.println(prefix + "  Min. opt. args      : " + minOptionalArgs);
 		pout.println(prefix + "  Max. opt. args      : " + maxOptionalArgs);
 		pout.println(prefix + "  Lemmatize           : " + lemmatize);
 		pout.println(prefix + "  Appositions verb    : \"" + appositionVerb + "\"");
 		pout.println(prefix + "  Possessive verb     : \"" + possessiveVerb + "\"");
+		pout.println(prefix + "  Deduplicate         : " + deduplicate);
+
+		pout.println(prefix + "");
+		pout.println(prefix + "LIMITS");
+		pout.println(prefix + "  Max. props/clause   : " + maxPropositionsPerClause);
+		pout.println(prefix + "  Max. props/sentence : " + maxPropositionsPerSentence);
 	}
 }
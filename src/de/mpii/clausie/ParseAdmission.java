@@ -0,0 +1,147 @@
+package de.mpii.clausie;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import edu.stanford.nlp.parser.lexparser.LexicalizedParser;
+
+/** Limits the estimated memory of concurrent parses.
+ *
+ * The chart of the PCFG parser grows quadratically with the number of tokens of a sentence, so a
+ * few simultaneous parses of long sentences can exhaust the heap even if most sentences are short.
+ * Before parsing, a {@link PcfgParserBackend} asks for admission with the number of tokens of its
+ * sentence; the memory of the parse is estimated as <code>c n<sup>2</sup></code> bytes and the
+ * parse is admitted once the estimated memory of all parses in flight, including this one, fits
+ * into the budget. Parses are admitted in the order in which they ask, so that long sentences are
+ * not starved by short ones. A parse whose estimate alone exceeds the budget is admitted when no
+ * other parse is in flight.
+ *
+ * The parser keeps its chart after a parse and only ever enlarges it, so the memory of a parse
+ * would otherwise stay allocated after it has been released. A backend under admission control
+ * therefore drops its chart after a sentence with more than {@link #getRetainTokens()} tokens
+ * before the memory of the parse is released. Idle backends keep charts for at most that many
+ * tokens, which are not charged; the budget should leave room for one such chart per worker.
+ *
+ * An instance is shared by the backends of all workers and is safe for use by multiple threads.
+ *
+ * @date $ $
+ * @version $ $ */
+public class ParseAdmission {
+
+	/** Memory available to parses in flight in bytes */
+	private final long budget;
+
+	/** Default maximum number of tokens for which a backend may keep its chart after parsing */
+	public static final int DEFAULT_RETAIN_TOKENS = 40;
+
+	/** Estimated bytes per squared token ({@code c}) */
+	private final long bytesPerSquaredToken;
+
+	/** Maximum number of tokens for which a backend may keep its chart after parsing */
+	private final int retainTokens;
+
+	/** Estimated memory of the parses in flight in bytes */
+	private long inFlight = 0;
+
+	/** Number of parses in flight */
+	private int noInFlight = 0;
+
+	/** Parses waiting for admission in the order in which they asked */
+	private final Deque<Thread> waiting = new ArrayDeque<Thread>();
+
+	/** Number of parses that had to wait and total time spent waiting in nanoseconds */
+	private long noWaited = 0;
+	private long waitNanos = 0;
+
+	/** Creates an admission control with the given budget, estimate and maximum number of tokens
+	 * for which a backend may keep its chart */
+	public ParseAdmission(long budget, long bytesPerSquaredToken, int retainTokens) {
+		if (budget <= 0 || bytesPerSquaredToken <= 0 || retainTokens <= 0) {
+			throw new IllegalArgumentException("Budget, estimate and retained tokens must be positive");
+		}
+		this.budget = budget;
+		this.bytesPerSquaredToken = bytesPerSquaredToken;
+		this.retainTokens = retainTokens;
+	}
+
+	/** Creates an admission control with the given budget and estimate */
+	public ParseAdmission(long budget, long bytesPerSquaredToken) {
+		this(budget, bytesPerSquaredToken, DEFAULT_RETAIN_TOKENS);
+	}
+
+	/** Creates an admission control with the given budget and maximum number of tokens for which
+	 * a backend may keep its chart for the given parser; the estimate is derived from the number
+	 * of states of its grammar (inside and outside scores and span counts per state and span) */
+	public ParseAdmission(long budget, LexicalizedParser lp, int retainTokens) {
+		this(budget, 12L * lp.stateIndex.size(), retainTokens);
+	}
+
+	/** Creates an admission control with the given budget for the given parser */
+	public ParseAdmission(long budget, LexicalizedParser lp) {
+		this(budget, lp, DEFAULT_RETAIN_TOKENS);
+	}
+
+	/** Returns the maximum number of tokens for which a backend may keep its chart after
+	 * parsing */
+	public int getRetainTokens() {
+		return retainTokens;
+	}
+
+	/** Returns the estimated memory of parsing a sentence with the given number of tokens */
+	public long estimate(int noTokens) {
+		return bytesPerSquaredToken * noTokens * noTokens;
+	}
+
+	/** Waits until a parse of a sentence with the given number of tokens is admitted; returns its
+	 * estimated memory, which must be passed to {@link #release(long)} after parsing */
+	public synchronized long acquire(int noTokens) throws InterruptedException {
+		long estimate = estimate(noTokens);
+		Thread self = Thread.currentThread();
+		waiting.addLast(self);
+		long start = 0;
+		try {
+			while (waiting.peekFirst() != self
+					|| (noInFlight > 0 && inFlight + estimate > budget)) {
+				if (start == 0) {
+					start = System.nanoTime();
+					noWaited++;
+				}
+				wait();
+			}
+		} finally {
+			// also when interrupted, so that the parses behind this one are not blocked
+			waiting.remove(self);
+			notifyAll();
+		}
+		if (start != 0) {
+			waitNanos += System.nanoTime() - start;
+		}
+		inFlight += estimate;
+		noInFlight++;
+		return estimate;
+	}
+
+	/** Ends a parse admitted by {@link #acquire(int)} */
+	public synchronized void release(long estimate) {
+		inFlight -= estimate;
+		noInFlight--;
+		notifyAll();
+	}
+
+	/** Returns the memory available to parses in flight in bytes */
+	public long getBudget() {
+		return budget;
+	}
+
+	/** Returns the estimated memory of the parses in flight in bytes */
+	public synchronized long getInFlight() {
+		return inFlight;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "budget: " + (budget >> 20) + " MB, in flight: " + noInFlight + " ("
+				+ (inFlight >> 20) + " MB), waited: " + noWaited + " ("
+				+ (waitNanos / 1000000) + " ms)";
+	}
+}
@@ -0,0 +1,67 @@
+package de.mpii.clausie;
+
+import edu.stanford.nlp.trees.Tree;
+import edu.stanford.nlp.trees.semgraph.SemanticGraph;
+
+/** Produces the parse of a sentence for {@link ClausIE#parse(String)}.
+ *
+ * Implementations are not required to be thread-safe; {@link #fork()} creates a backend that can
+ * be used by another thread.
+ *
+ * @date $ $
+ * @version $ $ */
+public interface ParserBackend {
+
+	/** The parse of a sentence; clause detection and proposition generation do not modify it */
+	public static final class Parse {
+		final Tree tree;
+		final TreeSpans spans;
+		final SemanticGraph semanticGraph;
+		final double score;
+
+		/** Creates a parse; the spans of the tree are extracted right away, so that the tree can
+		 * be dropped with {@link #withoutTree()} */
+		public Parse(Tree tree, SemanticGraph semanticGraph, double score) {
+			this(tree, new TreeSpans(tree), semanticGraph, score);
+		}
+
+		private Parse(Tree tree, TreeSpans spans, SemanticGraph semanticGraph, double score) {
+			this.tree = tree;
+			this.spans = spans;
+			this.semanticGraph = semanticGraph;
+			this.score = score;
+		}
+
+		/** Returns the constituency tree (null if it has been dropped) */
+		public Tree getTree() {
+			return tree;
+		}
+
+		/** Returns the spans of the constituency tree */
+		public TreeSpans getSpans() {
+			return spans;
+		}
+
+		/** Returns this parse without the constituency tree */
+		public Parse withoutTree() {
+			return tree == null ? this : new Parse(null, spans, semanticGraph, score);
+		}
+
+		/** Returns the (uncollapsed) dependencies */
+		public SemanticGraph getSemanticGraph() {
+			return semanticGraph;
+		}
+
+		/** Returns the score of the parse (NaN if not available) */
+		public double getScore() {
+			return score;
+		}
+	}
+
+	/** Parses a sentence */
+	Parse parse(String sentence);
+
+	/** Returns a backend that produces the same parses as this one and can be used concurrently
+	 * with it; resources such as parser models are shared */
+	ParserBackend fork();
+}
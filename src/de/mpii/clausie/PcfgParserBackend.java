@@ -0,0 +1,162 @@
+package de.mpii.clausie;
+
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.objectbank.TokenizerFactory;
+import edu.stanford.nlp.parser.lexparser.LexicalizedParser;
+import edu.stanford.nlp.parser.lexparser.LexicalizedParserQuery;
+import edu.stanford.nlp.pipeline.ParserAnnotatorUtils;
+import edu.stanford.nlp.process.CoreLabelTokenFactory;
+import edu.stanford.nlp.process.PTBTokenizer;
+import edu.stanford.nlp.trees.Tree;
+import edu.stanford.nlp.trees.semgraph.SemanticGraph;
+
+/** Parses sentences with the Stanford lexicalized parser. The memory of concurrent parses of
+ * forked backends can be limited with a shared {@link ParseAdmission}.
+ *
+ * The parser query keeps its chart after a parse and only enlarges it for longer sentences, so a
+ * single very long sentence would otherwise keep the chart of a backend large for the rest of the
+ * run. If a recycling threshold is set ({@link #setRecycleTokens(int)}), the parser query is
+ * replaced by a new one after a sentence longer than the threshold has been parsed, so that the
+ * memory of a backend stays proportional to the length of typical sentences. Under admission
+ * control, the threshold is at most {@link ParseAdmission#getRetainTokens()}.
+ *
+ * @date $ $
+ * @version $ $ */
+public class PcfgParserBackend implements ParserBackend {
+
+	private final LexicalizedParser lp;
+	private final TokenizerFactory<CoreLabel> tokenizerFactory;
+	private LexicalizedParserQuery lpq;
+
+	/** Limits the memory of concurrent parses (null if not limited) */
+	private ParseAdmission admission;
+
+	/** Number of tokens of the longest sentence parsed with the current parser query, for which
+	 * its chart is sized */
+	private int chartTokens = 0;
+
+	/** Number of tokens above which the parser query is replaced after parsing (0 to keep it) */
+	private int recycleTokens = 0;
+
+	/** Number of times the parser query has been replaced by this backend and its forks */
+	private AtomicLong recycled = new AtomicLong();
+
+	/** Creates a backend for the given parser with the default tokenizer */
+	public PcfgParserBackend(LexicalizedParser lp) {
+		this(lp, PTBTokenizer.factory(new CoreLabelTokenFactory(), ""), lp.parserQuery());
+	}
+
+	public PcfgParserBackend(LexicalizedParser lp, TokenizerFactory<CoreLabel> tokenizerFactory,
+			LexicalizedParserQuery lpq) {
+		this.lp = lp;
+		this.tokenizerFactory = tokenizerFactory;
+		this.lpq = lpq;
+	}
+
+	/** Creates a backend for the given model of the Stanford parser. Models are usually gzipped;
+	 * a model uncompressed with gunzip (and not ending in .gz) is read as it is, which saves the
+	 * decompression but not the deserialization of the model. */
+	public static PcfgParserBackend load(String modelPath) {
+		return new PcfgParserBackend(LexicalizedParser.loadModel(modelPath));
+	}
+
+	/** Sets the admission control of this backend and of the backends forked from it from now
+	 * on; null for none */
+	public void setAdmission(ParseAdmission admission) {
+		this.admission = admission;
+	}
+
+	/** Returns the admission control (null if none) */
+	public ParseAdmission getAdmission() {
+		return admission;
+	}
+
+	/** Sets the number of tokens above which the parser query of this backend and of the backends
+	 * forked from it from now on is replaced after parsing; 0 to keep the parser query */
+	public void setRecycleTokens(int recycleTokens) {
+		if (recycleTokens < 0) {
+			throw new IllegalArgumentException("Threshold must not be negative");
+		}
+		this.recycleTokens = recycleTokens;
+	}
+
+	/** Returns the number of tokens above which the parser query is replaced (0 if it is kept) */
+	public int getRecycleTokens() {
+		return recycleTokens;
+	}
+
+	/** Returns the number of times the parser query has been replaced by this backend and the
+	 * backends forked from it */
+	public long getRecycled() {
+		return recycled.get();
+	}
+
+	/** Returns the parser */
+	public LexicalizedParser getParser() {
+		return lp;
+	}
+
+	@Override
+	public Parse parse(String sentence) {
+		List<CoreLabel> tokenizedSentence = tokenizerFactory.getTokenizer(
+				new StringReader(sentence)).tokenize();
+		Tree tree;
+		double score;
+		ParseAdmission admission = this.admission;
+		long estimate = 0;
+		if (admission != null) {
+			try {
+				estimate = admission.acquire(tokenizedSentence.size());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting for admission");
+			}
+		}
+		try {
+			lpq.parse(tokenizedSentence);
+			tree = lpq.getBestParse();
+			score = lpq.getPCFGScore();
+		} finally {
+			chartTokens = Math.max(chartTokens, tokenizedSentence.size());
+			int maxChartTokens = recycleTokens;
+			if (admission != null
+					&& (maxChartTokens == 0 || admission.getRetainTokens() < maxChartTokens)) {
+				maxChartTokens = admission.getRetainTokens();
+			}
+			if (maxChartTokens > 0 && chartTokens > maxChartTokens) {
+				// drop the enlarged chart before its memory is released; the new query
+				// allocates its chart on first use
+				lpq = lp.parserQuery();
+				chartTokens = 0;
+				recycled.incrementAndGet();
+			}
+			if (admission != null) {
+				admission.release(estimate);
+			}
+		}
+		// use uncollapsed dependencies to facilitate tree creation
+		SemanticGraph semanticGraph = ParserAnnotatorUtils.generateUncollapsedDependencies(tree);
+		return new Parse(tree, semanticGraph, score);
+	}
+
+	/** Returns a backend that shares the parser and the tokenizer factory of this backend but has
+	 * its own parser query */
+	@Override
+	public PcfgParserBackend fork() {
+		PcfgParserBackend result = new PcfgParserBackend(lp, tokenizerFactory, lp.parserQuery());
+		result.admission = admission;
+		result.recycleTokens = recycleTokens;
+		result.recycled = recycled;
+		return result;
+	}
+
+	@Override
+	public String toString() {
+		return "recycled: " + getRecycled()
+				+ (admission != null ? ", admission: " + admission : "");
+	}
+}
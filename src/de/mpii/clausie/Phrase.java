@@ -0,0 +1,177 @@
+package de.mpii.clausie;
+
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+
+/** The textual content of a constituent of a {@link Proposition}.
+ * 
+ * A phrase is either a list of word indexes into the {@link SentenceTokens} of a sentence, a
+ * literal text (e.g., the verb of an apposition), or a sequence of other phrases. The text of a
+ * phrase is materialized only when requested; words and parts are separated by a space.
+ * 
+ * Phrases are compared by content. Within a sentence, equal phrases are shared through
+ * {@link SentenceTokens#intern(Phrase)} so that the text of a constituent that occurs in many
+ * propositions is materialized and stored only once.
+ * 
+ * @date $ $
+ * @version $ $ */
+public class Phrase {
+	
+	/** Words of the sentence (for word phrases) */
+	private final SentenceTokens tokens;
+	
+	/** Indexes of the words of this phrase in {@link #tokens} in output order (for word
+	 * phrases) */
+	private final int[] indexes;
+	
+	/** Whether words are rendered by their lemma rather than by their original text */
+	private final boolean lemmatize;
+	
+	/** Text of this phrase (for literal phrases) */
+	private final String text;
+	
+	/** Parts of this phrase (for composite phrases) */
+	private final Phrase[] parts;
+	
+	/** Materialized text of this phrase; null until {@link #toString()} is called */
+	private String rendered;
+	
+	/** Cached hash code; 0 if not yet computed */
+	private int hashCode;
+	
+	/** Parameters of the FNV-1a hash used by {@link #hash(long)} */
+	static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	static final long FNV_PRIME = 0x100000001b3L;
+	
+	private Phrase(SentenceTokens tokens, int[] indexes, boolean lemmatize, String text,
+			Phrase[] parts) {
+		this.tokens = tokens;
+		this.indexes = indexes;
+		this.lemmatize = lemmatize;
+		this.text = text;
+		this.parts = parts;
+	}
+	
+	/** Creates a phrase out of the words at the given indexes */
+	public static Phrase words(SentenceTokens tokens, int[] indexes, boolean lemmatize) {
+		return new Phrase(tokens, indexes, lemmatize, null, null);
+	}
+	
+	/** Creates a phrase with a fixed text */
+	public static Phrase literal(String text) {
+		return new Phrase(null, null, false, text, null);
+	}
+	
+	/** Creates a phrase that consists of the given phrases */
+	public static Phrase join(List<Phrase> parts) {
+		return new Phrase(null, null, false, null, parts.toArray(new Phrase[parts.size()]));
+	}
+	
+	/** Appends the text of this phrase to {@code sb} */
+	public void appendTo(StringBuilder sb) {
+		if (text != null) {
+			sb.append(text);
+		} else if (parts != null) {
+			for (int i=0; i<parts.length; i++) {
+				if (i > 0) sb.append(' ');
+				parts[i].appendTo(sb);
+			}
+		} else {
+			for (int i=0; i<indexes.length; i++) {
+				if (i > 0) sb.append(' ');
+				sb.append(tokens.text(indexes[i], lemmatize));
+			}
+		}
+	}
+	
+	/** Prints the text of this phrase without materializing it (unless it has been
+	 * materialized before) */
+	public void print(PrintStream out) {
+		if (text != null) {
+			out.print(text);
+		} else if (rendered != null) {
+			out.print(rendered);
+		} else if (parts != null) {
+			for (int i=0; i<parts.length; i++) {
+				if (i > 0) out.print(' ');
+				parts[i].print(out);
+			}
+		} else {
+			for (int i=0; i<indexes.length; i++) {
+				if (i > 0) out.print(' ');
+				out.print(tokens.text(indexes[i], lemmatize));
+			}
+		}
+	}
+	
+	/** Continues the FNV-1a hash {@code hash} with the characters of the text of this phrase.
+	 * The result is the same as hashing the materialized text. */
+	long hash(long hash) {
+		if (text != null) {
+			hash = hash(hash, text);
+		} else if (parts != null) {
+			for (int i=0; i<parts.length; i++) {
+				if (i > 0) hash = (hash ^ ' ') * FNV_PRIME;
+				hash = parts[i].hash(hash);
+			}
+		} else {
+			for (int i=0; i<indexes.length; i++) {
+				if (i > 0) hash = (hash ^ ' ') * FNV_PRIME;
+				hash = hash(hash, tokens.text(indexes[i], lemmatize));
+			}
+		}
+		return hash;
+	}
+	
+	/** Continues the FNV-1a hash {@code hash} with the characters of {@code s} */
+	private static long hash(long hash, String s) {
+		for (int i=0; i<s.length(); i++) {
+			hash = (hash ^ s.charAt(i)) * FNV_PRIME;
+		}
+		return hash;
+	}
+	
+	/** Materializes the text of this phrase; the text is computed only once */
+	@Override
+	public String toString() {
+		if (text != null) return text;
+		if (rendered == null) {
+			StringBuilder sb = new StringBuilder();
+			appendTo(sb);
+			rendered = sb.toString();
+		}
+		return rendered;
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (!(o instanceof Phrase)) return false;
+		Phrase other = (Phrase) o;
+		if (text != null) {
+			return text.equals(other.text);
+		} else if (parts != null) {
+			return Arrays.equals(parts, other.parts);
+		} else {
+			return tokens == other.tokens && lemmatize == other.lemmatize
+					&& Arrays.equals(indexes, other.indexes);
+		}
+	}
+	
+	@Override
+	public int hashCode() {
+		int h = hashCode;
+		if (h == 0) {
+			if (text != null) {
+				h = text.hashCode();
+			} else if (parts != null) {
+				h = Arrays.hashCode(parts);
+			} else {
+				h = 31 * Arrays.hashCode(indexes) + (lemmatize ? 1 : 0);
+			}
+			hashCode = h;
+		}
+		return h;
+	}
+}
@@ -0,0 +1,30 @@
+package de.mpii.clausie;
+
+
+/** A constituent whose content is given by a {@link Phrase}, e.g., an alternative of an xcomp
+ *  constituent that was expanded into a proposition. The phrase is used as is during 
+ *  proposition generation.
+ * 
+ * @date $ $
+ * @version $ $ */
+public class PhraseConstituent extends Constituent {
+	private static final long serialVersionUID = 1L;
+	Phrase phrase;
+	
+	/** Constructs a constituent with a specified phrase and type. */
+	public PhraseConstituent(Phrase phrase, Type type) {
+		super(type);
+		this.phrase = phrase;
+	}
+
+	/** Returns the phrase of the constituent. */
+	public Phrase phrase() {
+		return phrase;
+	}
+
+	/** Returns a textual representation of the constituent. */
+	public String rootString() {
+		return phrase.toString();
+	}
+
+}
@@ -0,0 +1,41 @@
+package de.mpii.clausie;
+
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.ParserAnnotatorUtils;
+import edu.stanford.nlp.trees.Tree;
+import edu.stanford.nlp.trees.semgraph.SemanticGraph;
+
+/** Reads parses instead of computing them: each "sentence" is a constituency tree in Penn
+ * Treebank bracket notation, e.g., <code>(ROOT (S (NP (PRP He)) (VP (VBD slept)) (. .)))</code>,
+ * as produced by an external parser. The score of a parse is the score stored in the tree (NaN
+ * if there is none).
+ *
+ * @date $ $
+ * @version $ $ */
+public class PreParsedBackend implements ParserBackend {
+
+	@Override
+	public Parse parse(String sentence) {
+		Tree tree = Tree.valueOf(sentence);
+		if (tree == null) {
+			throw new IllegalArgumentException("Not a parse tree: " + sentence);
+		}
+		// the original text of a word is not part of the bracket notation
+		for (Tree leaf : tree.getLeaves()) {
+			if (leaf.label() instanceof CoreLabel) {
+				CoreLabel label = (CoreLabel) leaf.label();
+				if (label.originalText() == null || label.originalText().isEmpty()) {
+					label.setOriginalText(label.value());
+				}
+			}
+		}
+		SemanticGraph semanticGraph = ParserAnnotatorUtils.generateUncollapsedDependencies(tree);
+		return new Parse(tree, semanticGraph, tree.score());
+	}
+
+	/** Returns this backend, which has no state */
+	@Override
+	public ParserBackend fork() {
+		return this;
+	}
+}
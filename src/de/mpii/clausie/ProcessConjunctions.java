@@ -9,7 +9,6 @@ import de.mpii.clausie.Constituent.Type;
 import edu.stanford.nlp.ling.IndexedWord;
 import edu.stanford.nlp.trees.EnglishGrammaticalRelations;
 import edu.stanford.nlp.trees.GrammaticalRelation;
-import edu.stanford.nlp.trees.Tree;
 import edu.stanford.nlp.trees.semgraph.SemanticGraph;
 import edu.stanford.nlp.trees.semgraph.SemanticGraphEdge;
 
@@ -26,19 +25,19 @@ public class ProcessConjunctions {
 
 	
 	/** Process CCs of a given constituent */
-    public static List<Constituent> processCC(Tree depTree, Clause clause,
+    public static List<Constituent> processCC(TreeSpans spans, Clause clause,
             Constituent constituent, int index) {
-        return generateConstituents(depTree, clause, (IndexedConstituent) constituent, index);
+        return generateConstituents(spans, clause, (IndexedConstituent) constituent, index);
     }
 
     /** Generates a set of constituents from a CC for a given constituent */    
-    private static List<Constituent> generateConstituents(Tree depTree, Clause clause,
+    private static List<Constituent> generateConstituents(TreeSpans spans, Clause clause,
             IndexedConstituent constituent, int index) {
         IndexedConstituent copy = constituent.clone();
         copy.setSemanticGraph( copy.createReducedSemanticGraph() );
         List<Constituent> result = new ArrayList<Constituent>();
         result.add(copy);
-        generateConstituents(copy.getSemanticGraph(), depTree, copy, copy.getRoot(),
+        generateConstituents(copy.getSemanticGraph(), spans, copy, copy.getRoot(),
                 result, true);
         return result;
 
@@ -46,7 +45,7 @@ public class ProcessConjunctions {
 
     // Process CCs by exploring the graph from one constituent and generating more constituents as
     // it encounters ccs
-    private static void generateConstituents(SemanticGraph semanticGraph, Tree depTree,
+    private static void generateConstituents(SemanticGraph semanticGraph, TreeSpans spans,
             IndexedConstituent constituent, IndexedWord root, List<Constituent> constituents,
             boolean firstLevel) {
 
@@ -90,7 +89,7 @@ public class ProcessConjunctions {
             if (DpUtils.isAnyConj(edge) && processCC) {           	
             	boolean cont = false;
             	for(SemanticGraphEdge c : conjunct) {
-            		if(c.getDependent().lemma().equals("&") && nextToVerb(depTree, root.index(), edge.getDependent().index(), c.getDependent().index())) {
+            		if(c.getDependent().lemma().equals("&") && spans.nextToVerb(root.index(), edge.getDependent().index(), c.getDependent().index())) {
             			cont = true;
             			break;
             		}
@@ -125,7 +124,7 @@ public class ProcessConjunctions {
                     if(DpUtils.isPredet(ed) && ed.getDependent().lemma().equals("both")) { //if it is one level down
                     	semanticGraph.removeEdge(ed);
                     } else if (!DpUtils.isAnyConj(ed) && !DpUtils.isCc(ed) && !DpUtils.isPreconj(ed)
-                            && isDescendant(depTree, newRoot.index(), root.index(), child.index())) {
+                            && spans.isDescendant(newRoot.index(), root.index(), child.index())) {
                         GrammaticalRelation reln = newSemanticGraph.reln(root, child);
                         double weight = newSemanticGraph.getEdge(root, child).getWeight();
                         newSemanticGraph.addEdge(newRoot, child, reln, weight);
@@ -141,10 +140,10 @@ public class ProcessConjunctions {
                 // It passes the constituent with the correct root, if it is the first level it
                 // should be the new constituent
                 if (firstLevel) {
-                    generateConstituents(newSemanticGraph, depTree, newConstituent, newRoot,
+                    generateConstituents(newSemanticGraph, spans, newConstituent, newRoot,
                             constituents, false);
                 } else {
-                    generateConstituents(newSemanticGraph, depTree, constituent, newRoot,
+                    generateConstituents(newSemanticGraph, spans, constituent, newRoot,
                             constituents, false);
                 }
                 
@@ -153,41 +152,15 @@ public class ProcessConjunctions {
             } else if ((DpUtils.isCc(edge) || DpUtils.isPreconj(edge))&& processCC && !edge.getDependent().lemma().equals("&")) {
                 semanticGraph.removeEdge(edge);
             } else if(!DpUtils.isPredet(edge) && !constituent.excludedVertexes.contains(edge.getDependent()))
-                generateConstituents(semanticGraph, depTree, constituent, edge.getDependent(),
+                generateConstituents(semanticGraph, spans, constituent, edge.getDependent(),
                         constituents, false);
         }
 
     }
 
-	/** Checks if a node depending on one conjoint also depends to the other */
-    //"He buys and sells electronic products" "Is products depending on both sells and buys?"
-    private static boolean isDescendant(Tree parse, int indexCheck, int indexPivot,
-            int indexElement) {
-        Tree pivot = parse.getLeaves().get(indexPivot - 1); // because tree parse indexing system
-                                                            // starts with 0
-        Tree check = parse.getLeaves().get(indexCheck - 1);
-        Tree element = parse.getLeaves().get(indexElement - 1);
-
-        while ((!element.value().equals("ROOT"))) {// find a common parent between the head conjoint
-                                                   // and the constituent of the element
-            if (element.pathNodeToNode(element, pivot) != null) // is this efficient enough?
-                break;
-            element = element.parent(parse);
-        }
-
-        List<Tree> path = element.pathNodeToNode(element, check); // find a path between the common
-                                                                  // parent and the other conjoint
-
-        if (path != null)
-            return true;
-        else
-            return false;
-    }
-
-
     /** Retrieves the heads of the clauses according to the CCs processing options. The result contains
      * verbs conjoined and a complement if it is conjoined with a verb.*/
-    public static List<IndexedWord> getIndexedWordsConj(SemanticGraph semanticGraph, Tree depTree,
+    public static List<IndexedWord> getIndexedWordsConj(SemanticGraph semanticGraph, TreeSpans spans,
             IndexedWord root, GrammaticalRelation rel, List<SemanticGraphEdge> toRemove,
             Options option) {
         List<IndexedWord> ccs = new ArrayList<IndexedWord>(); // to store the conjoints
@@ -211,7 +184,7 @@ public class ProcessConjunctions {
                 // This flag will check if the cc should be processed according to the flag and the
                 // shared elements.
                 boolean notProcess = !option.processCcAllVerbs && outed.isEmpty()
-                        && shareAll(outedges, depTree, root, edge.getDependent());
+                        && shareAll(outedges, spans, root, edge.getDependent());
 
                 if ((ccVerbs || ccCop) && !ccMainClauses && !notProcess) {
                 	ccs.add(edge.getDependent());
@@ -228,7 +201,7 @@ public class ProcessConjunctions {
                         for (SemanticGraphEdge e : conjunct) {
                             if (e.getDependent().index() > edge.getDependent().index())
                                 continue;
-                            if (nextToVerb(depTree, root.index(), edge.getDependent().index(), e
+                            if (spans.nextToVerb(root.index(), edge.getDependent().index(), e
                                     .getDependent().index())) {
                                 toRemove.add(e);
                                 break;
@@ -239,13 +212,13 @@ public class ProcessConjunctions {
             }
         }
         if(ccs.size() > 1)
-        	rewriteGraph(semanticGraph, depTree, ccs);
+        	rewriteGraph(semanticGraph, spans, ccs);
         return ccs;
     }
 
     /** Rewrites the graph so that each conjoint is independent from each other.
      * They will be disconnected and each dependent correspondignly assigned */
-    private static void rewriteGraph(SemanticGraph semanticGraph, Tree depTree,
+    private static void rewriteGraph(SemanticGraph semanticGraph, TreeSpans spans,
 			List<IndexedWord> ccs) {
         
     	for(int i = 0; i < ccs.size(); i++) {
@@ -262,7 +235,7 @@ public class ProcessConjunctions {
     	            IndexedWord child = ed.getDependent();
     	            if(semanticGraph.getChildren(ccs.get(j)).contains(child)) continue;
     	            if (!DpUtils.isAnyConj(ed) && !DpUtils.isCc(ed)
-    	                    && isDescendant(depTree, ccs.get(j).index(), ccs.get(i).index(), child.index())) {
+    	                    && spans.isDescendant(ccs.get(j).index(), ccs.get(i).index(), child.index())) {
     	                semanticGraph.addEdge(ccs.get(j), child, ed.getRelation(), ed.getWeight());
     	            }
     	        }
@@ -271,69 +244,13 @@ public class ProcessConjunctions {
     	}    	
 	}
 
-    /** Checks if two nodes are conjoined by a given conjunction */
-    private static boolean nextToVerb(Tree depTree, int firstVerb, int secondVerb, int conj) {
-        Tree fverb = depTree.getLeaves().get(firstVerb - 1);
-        Tree sverb = depTree.getLeaves().get(secondVerb - 1);
-        Tree conjv = depTree.getLeaves().get(conj - 1);
-
-        // This will lead us to the level in the tree we want to compare
-        conjv = conjv.parent(depTree);
-
-        
-        List<Tree> siblings = conjv.siblings(depTree);
-        Tree[] children = conjv.parent(depTree).children();
-        if (children.length == 0)
-            return false;
-
-        // This will give the node of the conjoint dominating the coordination
-        while (!siblings.contains(fverb)) {
-            fverb = fverb.parent(depTree);
-            if (fverb.equals(depTree))
-                return false;
-        }
-
-        // same for the other conjoint
-        while (!siblings.contains(sverb)) {
-            sverb = sverb.parent(depTree);
-            if (sverb.equals(depTree))
-                return false;
-        }
-
-        Integer fv = null;
-        Integer sv = null;
-
-        // This will take the indexes of the nodes dominating the conjoint
-        for (int i = 0; i < children.length; i++) {
-            if (children[i].equals(fverb))
-                fv = i;
-            else if (children[i].equals(sverb))
-                sv = i;
-            if (fv != null & sv != null)
-                break;
-        }
-        
-
-        // This will check if they are continuous
-        if(fv == null || sv == null)
-        	return false;
-      //Assumes that the minimum distance between adjacent conjoints is 2 in the most usual case---> a,b,c and d
-      //It is <= 3 to work in the case a,b,c,and, d In the last one the distance is 3.
-        else if (sv - fv <= 3)    
-        	return true;                   
-            
-        else
-            return false;
-
-    }
-
     /** Checks if two conjoints verbs share all dependents */
-    private static boolean shareAll(List<SemanticGraphEdge> outedges, Tree depTree,
+    private static boolean shareAll(List<SemanticGraphEdge> outedges, TreeSpans spans,
             IndexedWord root, IndexedWord conj) {
         for (SemanticGraphEdge edge : outedges) {
             if (DpUtils.isAnySubj(edge) || edge.getDependent().equals(conj))
                 continue;
-            else if (!isDescendant(depTree, conj.index(), root.index(), edge.getDependent()
+            else if (!spans.isDescendant(conj.index(), root.index(), edge.getDependent()
                     .index()))
                 return false;
         }
@@ -2,20 +2,21 @@
 package de.mpii.clausie;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
 
 /** Stores a proposition.
+ * 
+ * The constituents of a proposition are {@link Phrase}s that refer to the words of the sentence;
+ * their text is materialized only on demand.
  * 
  * @date $LastChangedDate: 2013-04-24 11:54:36 +0200 (Wed, 24 Apr 2013) $
  * @version $LastChangedRevision: 741 $ */
 public class Proposition {
 	
 	/** Constituents of the proposition */
-	List<String> constituents = new ArrayList<String>();
-	/** Position of optional constituents */
-	Set<Integer> optional = new HashSet<Integer>();
+	List<Phrase> constituents = new ArrayList<Phrase>();
+	/** Position of optional constituents; bit i is set if constituent i is optional */
+	long optional = 0;
 	
 	// TODO: types of constituents (e.g., optionality)
 	// sentence ID etc.
@@ -25,17 +26,17 @@ public class Proposition {
 
 	/** Returns the subject of the proposition */
 	public String subject() {
-		return constituents.get(0);
+		return constituents.get(0).toString();
 	}
 	
 	/** Returns the relation of the proposition */
 	public String relation() {
-		return constituents.get(1);
+		return constituents.get(1).toString();
 	}
 	
 	/** Returns a constituent in a given position*/
 	public String argument(int i) {
-		return constituents.get(i+2);
+		return constituents.get(i+2).toString();
 	}
 	
 	/** Returns the number of arguments*/
@@ -43,23 +44,71 @@ public class Proposition {
 		return constituents.size() -2;
 	}
 	
+	/** Returns the number of constituents (subject, relation and arguments)*/
+	public int noConstituents() {
+		return constituents.size();
+	}
+	
+	/** Returns the constituent in a given position without materializing its text*/
+	public Phrase constituent(int i) {
+		return constituents.get(i);
+	}
+	
 	/** Checks if an argument is optional*/
 	public boolean isOptionalArgument(int i) {
-		return optional.contains(i+2);
+		return isOptional(i+2);
+	}
+	
+	/** Checks if the constituent in a given position is optional*/
+	boolean isOptional(int i) {
+		return i < Long.SIZE && (optional & (1L << i)) != 0;
+	}
+	
+	/** Marks the constituent in a given position as optional*/
+	void setOptional(int i) {
+		if (i < Long.SIZE) {
+			optional |= 1L << i;
+		}
+	}
+	
+	/** Returns a 64-bit hash of the text of the constituents and the positions of the optional 
+	 * constituents of this proposition (FNV-1a). Equal propositions have equal fingerprints. */
+	public long fingerprint() {
+		long hash = Phrase.FNV_OFFSET_BASIS;
+		for (int i=0; i<constituents.size(); i++) {
+			hash = constituents.get(i).hash(hash);
+			// separator; outside of the range of chars
+			hash = (hash ^ (isOptional(i) ? 0x10001 : 0x10000)) * Phrase.FNV_PRIME;
+		}
+		return hash;
+	}
+	
+	/** Checks whether this proposition has the same text and the same optional constituents as
+	 * {@code other}; such propositions have equal fingerprints. */
+	boolean sameText(Proposition other) {
+		if (optional != other.optional || constituents.size() != other.constituents.size()) {
+			return false;
+		}
+		for (int i=0; i<constituents.size(); i++) {
+			if (!constituents.get(i).toString().equals(other.constituents.get(i).toString())) {
+				return false;
+			}
+		}
+		return true;
 	}
 	
 	@Override
 	public String toString() {
-		StringBuffer sb = new StringBuffer();
+		StringBuilder sb = new StringBuilder();
 		String sep = "(";
 		for (int i=0; i<constituents.size(); i++) {
-			String constituent = constituents.get(i);
+			Phrase constituent = constituents.get(i);
 			sb.append(sep);
 			sep = ", ";
 			sb.append("\"");
-			sb.append(constituent);
+			constituent.appendTo(sb);
 			sb.append("\"");
-			if (optional.contains(i)) {
+			if (isOptional(i)) {
 				sb.append("?");
 			}
 		}
@@ -67,11 +116,22 @@ public class Proposition {
 		return sb.toString();
 	}
 	
+	/** Returns a copy of this proposition whose constituents are literal phrases. The copy does
+	 * not refer to the sentence it was generated from. */
+	public Proposition detach() {
+		Proposition copy = new Proposition();
+		for (Phrase constituent : constituents) {
+			copy.constituents.add(Phrase.literal(constituent.toString()));
+		}
+		copy.optional = optional;
+		return copy;
+	}
+	
 	@Override
 	public Proposition clone() {
 		Proposition clone = new Proposition();
-		clone.constituents = new ArrayList<String>(this.constituents);
-		clone.optional = new HashSet<Integer>(this.optional);
+		clone.constituents = new ArrayList<Phrase>(this.constituents);
+		clone.optional = this.optional;
 		return clone;
 	}
 }
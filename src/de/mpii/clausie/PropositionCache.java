@@ -0,0 +1,233 @@
+package de.mpii.clausie;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** A size-bounded cache of the propositions of sentences.
+ *
+ * Entries are keyed by the normalized text of a sentence and the values of the options used to
+ * process it ({@link Options#key()}), so that a cache can be shared by ClausIE instances with
+ * different options. The cache is split into independently locked segments, each
+ * of which evicts its least recently used entries. Cached propositions are detached from their
+ * sentence ({@link Proposition#detach()}).
+ *
+ * The cache is safe for use by multiple threads.
+ *
+ * @date $ $
+ * @version $ $ */
+public class PropositionCache {
+
+	/** Result of processing a sentence */
+	public static class Entry {
+		/** Propositions of the sentence in the order in which they were generated */
+		final List<Proposition> propositions;
+
+		/** Score of the parse of the sentence */
+		final double score;
+
+		/** Whether the proposition budget was exceeded */
+		final boolean truncated;
+
+		Entry(List<Proposition> propositions, double score, boolean truncated) {
+			this.propositions = Collections.unmodifiableList(propositions);
+			this.score = score;
+			this.truncated = truncated;
+		}
+
+		/** Returns the propositions of the sentence */
+		public List<Proposition> getPropositions() {
+			return propositions;
+		}
+
+		/** Returns the score of the parse of the sentence */
+		public double getScore() {
+			return score;
+		}
+
+		/** Checks whether the proposition budget was exceeded for the sentence */
+		public boolean isTruncated() {
+			return truncated;
+		}
+	}
+
+	/** Key of an entry */
+	private static final class Key {
+		final String sentence;
+		final List<Object> options;
+		final int hashCode;
+
+		Key(String sentence, List<Object> options) {
+			this.sentence = sentence;
+			this.options = options;
+			this.hashCode = 31 * sentence.hashCode() + options.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) return false;
+			Key other = (Key) o;
+			return hashCode == other.hashCode && sentence.equals(other.sentence)
+					&& options.equals(other.options);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+
+	/** A segment of the cache; access-ordered so that the eldest entry is the least recently used
+	 * one */
+	private static final class Segment extends LinkedHashMap<Key, Entry> {
+		private static final long serialVersionUID = 1L;
+
+		/** Maximum number of entries of this segment */
+		private final int capacity;
+
+		Segment(int capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+			return size() > capacity;
+		}
+	}
+
+	/** Default number of segments */
+	public static final int DEFAULT_SEGMENTS = 16;
+
+	/** Segments of the cache */
+	private final Segment[] segments;
+
+	/** Number of lookups that found an entry */
+	private final AtomicLong hits = new AtomicLong();
+
+	/** Number of lookups that did not find an entry */
+	private final AtomicLong misses = new AtomicLong();
+
+	/** Creates a cache that holds up to (approximately) {@code maxSentences} sentences */
+	public PropositionCache(int maxSentences) {
+		this(maxSentences, DEFAULT_SEGMENTS);
+	}
+
+	/** Creates a cache that holds up to (approximately) {@code maxSentences} sentences in the
+	 * given number of segments */
+	public PropositionCache(int maxSentences, int noSegments) {
+		if (maxSentences <= 0 || noSegments <= 0) {
+			throw new IllegalArgumentException("Cache size and number of segments must be positive");
+		}
+		noSegments = Math.min(noSegments, maxSentences);
+		segments = new Segment[noSegments];
+		for (int i=0; i<noSegments; i++) {
+			// distribute the capacity evenly
+			int capacity = maxSentences / noSegments + (i < maxSentences % noSegments ? 1 : 0);
+			segments[i] = new Segment(capacity);
+		}
+	}
+
+	/** Normalizes the text of a sentence: leading and trailing whitespace is removed and each
+	 * run of whitespace is replaced by a single space */
+	public static String normalize(String sentence) {
+		StringBuilder sb = new StringBuilder(sentence.length());
+		boolean space = false;
+		for (int i=0; i<sentence.length(); i++) {
+			char c = sentence.charAt(i);
+			if (Character.isWhitespace(c)) {
+				space = sb.length() > 0;
+			} else {
+				if (space) sb.append(' ');
+				space = false;
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+
+	/** Returns the segment responsible for the given key */
+	private Segment segment(Key key) {
+		int h = key.hashCode();
+		h ^= (h >>> 16);
+		return segments[(h & 0x7fffffff) % segments.length];
+	}
+
+	/** Returns the cached result of the given sentence or null if there is none */
+	public Entry get(String sentence, Options options) {
+		Key key = new Key(normalize(sentence), options.key());
+		Segment segment = segment(key);
+		Entry entry;
+		synchronized (segment) {
+			entry = segment.get(key);
+		}
+		if (entry == null) {
+			misses.incrementAndGet();
+		} else {
+			hits.incrementAndGet();
+		}
+		return entry;
+	}
+
+	/** Caches the propositions of the given sentence; the propositions are detached */
+	public Entry put(String sentence, Options options, List<Proposition> propositions,
+			double score, boolean truncated) {
+		List<Proposition> detached = new ArrayList<Proposition>(propositions.size());
+		for (Proposition p : propositions) {
+			detached.add(p.detach());
+		}
+		Entry entry = new Entry(detached, score, truncated);
+		Key key = new Key(normalize(sentence), options.key());
+		Segment segment = segment(key);
+		synchronized (segment) {
+			segment.put(key, entry);
+		}
+		return entry;
+	}
+
+	/** Removes all entries; the statistics are kept */
+	public void clear() {
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+
+	/** Returns the number of cached sentences */
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	/** Returns the number of lookups that found an entry */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/** Returns the number of lookups that did not find an entry */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	/** Returns the fraction of lookups that found an entry (0 if there were no lookups) */
+	public double getHitRate() {
+		long h = hits.get();
+		long total = h + misses.get();
+		return total == 0 ? 0. : (double) h / total;
+	}
+
+	@Override
+	public String toString() {
+		return "hits: " + getHits() + ", misses: " + getMisses() + ", hit rate: "
+				+ String.format("%.3f", getHitRate()) + ", size: " + size();
+	}
+}
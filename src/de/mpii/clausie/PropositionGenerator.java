@@ -1,9 +1,11 @@
 package de.mpii.clausie;
 
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
-import java.util.List;
+import java.util.IdentityHashMap;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -37,57 +39,90 @@ public abstract class PropositionGenerator {
         EXCLUDE_RELATIONS_VERB.add(EnglishGrammaticalRelations.valueOf("dep")); //without this asome adverbs or auxiliaries will end up in the relation
     }
 
+    /** Phrases generated by {@link #generate(Clause, int)} for constituents of the sentence in
+     * {@link #cachedTokens} when used as verb or as other constituent, respectively */
+    private final Map<Constituent, Phrase> verbPhrases = new IdentityHashMap<Constituent, Phrase>();
+    private final Map<Constituent, Phrase> phrases = new IdentityHashMap<Constituent, Phrase>();
+    private SentenceTokens cachedTokens;
+    private boolean cachedLemmatize;
+
     /** Constructs a proposition generator*/
     public PropositionGenerator(ClausIE clausIE) {
         this.clausIE = clausIE;
     }
 
-    /** Generates propositions for a given clause*/
-    public abstract void generate(List<Proposition> result, Clause clause, List<Boolean> include);
+    /** Generates propositions for a given clause and passes each of them to {@code sink}. Bit i
+     * of {@code include} is set if the constituent at position i of the clause is to be
+     * included. */
+    public abstract void generate(PropositionSink sink, Clause clause, long include);
 
-    /** Generates a textual representation of a given constituent plus a set of words*/
-    private String generatePhrase(IndexedConstituent constituent, Collection<IndexedWord> words) {
-        StringBuffer result = new StringBuffer();
-        String separator = "";
-        result.append(separator);
-        if (constituent.isPrepositionalPhrase()) {
-            if (clausIE.options.lemmatize) {
-                result.append(constituent.getRoot().lemma());
-            } else {
-                result.append(constituent.getRoot().originalText());
-            }
-            separator = " ";
-        }
+    /** Generates propositions for a given clause as {@link #generate(PropositionSink, Clause, long)};
+     * used for clauses with more than {@link Long#SIZE} constituents. Bit i of {@code include} is
+     * set if the constituent at position i of the clause is to be included. */
+    public abstract void generate(PropositionSink sink, Clause clause, BitSet include);
 
+    /** Checks whether the constituent at position {@code index} is set in the mask {@code include} */
+    protected static boolean isIncluded(long include, int index) {
+        return (include & (1L << index)) != 0;
+    }
+
+    /** Generates a phrase for a given constituent plus a set of words. The phrase refers to the
+     * words by their index; no text is materialized. */
+    private Phrase generatePhrase(IndexedConstituent constituent, Collection<IndexedWord> words) {
+        SentenceTokens tokens = clausIE.getTokens();
+        boolean prepositionalPhrase = constituent.isPrepositionalPhrase();
+        int[] indexes = new int[words.size() + (prepositionalPhrase ? 1 : 0)];
+        int i = 0;
+        if (prepositionalPhrase) {
+            indexes[i++] = tokens.indexOf(constituent.getRoot());
+        }
         for (IndexedWord word : words) {
-            result.append(separator);
-            if (clausIE.options.lemmatize) {
-                result.append(word.lemma());
-            } else {
-                result.append(word.originalText());
-            }
-            separator = " ";
+            indexes[i++] = tokens.indexOf(word);
         }
-        return result.toString();
+        return tokens.intern(Phrase.words(tokens, indexes, clausIE.options.lemmatize));
     }
 
-    /** Generates a textual representation of a given constituent in a given clause*/
-    public String generate(Clause clause, int constituentIndex) {
+    /** Generates a phrase for a given constituent in a given clause. A constituent that occurs
+     * in many propositions of a sentence is generated only once. */
+    public Phrase generate(Clause clause, int constituentIndex) {
+        SentenceTokens tokens = clausIE.getTokens();
+        if (tokens != cachedTokens || clausIE.options.lemmatize != cachedLemmatize) {
+            verbPhrases.clear();
+            phrases.clear();
+            cachedTokens = tokens;
+            cachedLemmatize = clausIE.options.lemmatize;
+        }
         Set<GrammaticalRelation> excludeRelations = EXCLUDE_RELATIONS;
+        Map<Constituent, Phrase> cache = phrases;
         if (clause.verb == constituentIndex) {
             excludeRelations = EXCLUDE_RELATIONS_VERB;
+            cache = verbPhrases;
         }
+        Constituent constituent = clause.constituents.get(constituentIndex);
+        if (!(constituent instanceof IndexedConstituent)) {
+            // cheap to generate; text constituents may depend on the options
             return generate(clause, constituentIndex, excludeRelations,
                     Collections.<GrammaticalRelation> emptySet());
+        }
+        Phrase phrase = cache.get(constituent);
+        if (phrase == null) {
+            phrase = generate(clause, constituentIndex, excludeRelations,
+                    Collections.<GrammaticalRelation> emptySet());
+            cache.put(constituent, phrase);
+        }
+        return phrase;
     }
 
-    /** Generates a textual representation of a given constituent in a given clause*/
-    public String generate(Clause clause, int constituentIndex,
+    /** Generates a phrase for a given constituent in a given clause*/
+    public Phrase generate(Clause clause, int constituentIndex,
             Collection<GrammaticalRelation> excludeRelations,
             Collection<GrammaticalRelation> excludeRelationsTop) {
         Constituent constituent = clause.constituents.get(constituentIndex);
         if (constituent instanceof TextConstituent) {
-            return ((TextConstituent) constituent).text();
+            return clausIE.getTokens().intern(
+                    Phrase.literal(((TextConstituent) constituent).text(clausIE.options)));
+        } else if (constituent instanceof PhraseConstituent) {
+            return ((PhraseConstituent) constituent).phrase();
         } else if (constituent instanceof IndexedConstituent) {
             IndexedConstituent iconstituent = (IndexedConstituent) constituent;
             SemanticGraph subgraph = iconstituent.createReducedSemanticGraph(); 
@@ -0,0 +1,11 @@
+package de.mpii.clausie;
+
+/** Receives propositions one at a time, as soon as they are generated.
+ * 
+ * @date $ $
+ * @version $ $ */
+public interface PropositionSink {
+
+	/** Called for each generated proposition */
+	void add(Proposition proposition);
+}
@@ -0,0 +1,96 @@
+package de.mpii.clausie;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import edu.stanford.nlp.ling.IndexedWord;
+import edu.stanford.nlp.trees.semgraph.SemanticGraph;
+
+/** The words of a sentence, addressed by their index in the sentence (starting at 1).
+ * 
+ * Propositions refer to words through their indexes (see {@link Phrase}) so that the text of a
+ * constituent is only materialized when it is needed. The lemma of each word is interned once
+ * into the {@link LemmaIndex} of the dictionaries so that dictionary lookups do not need to hash
+ * strings. Equal phrases generated for the sentence are shared through {@link #intern(Phrase)}.
+ * 
+ * @date $ $
+ * @version $ $ */
+public class SentenceTokens {
+	
+	/** Words of the sentence by index; null for indexes of words that do not appear in the
+	 * semantic graph (e.g., punctuation) */
+	private IndexedWord[] words;
+	
+	/** Lemma id of each word in {@link #lemmaIndex}; -1 if the lemma is not known */
+	private int[] lemmaIds;
+	
+	/** Index used to assign lemma ids */
+	private final LemmaIndex lemmaIndex;
+	
+	/** Phrases generated for this sentence (see {@link #intern(Phrase)}) */
+	private final Map<Phrase, Phrase> phrases = new HashMap<Phrase, Phrase>();
+	
+	/** Collects the words of the given semantic graph and looks up their lemma ids */
+	public SentenceTokens(SemanticGraph semanticGraph, LemmaIndex lemmaIndex) {
+		this.lemmaIndex = lemmaIndex;
+		int maxIndex = 0;
+		for (IndexedWord word : semanticGraph.vertexSet()) {
+			maxIndex = Math.max(maxIndex, word.index());
+		}
+		words = new IndexedWord[maxIndex + 1];
+		lemmaIds = new int[maxIndex + 1];
+		Arrays.fill(lemmaIds, -1);
+		for (IndexedWord word : semanticGraph.vertexSet()) {
+			words[word.index()] = word;
+			lemmaIds[word.index()] = lemmaIndex.id(word.lemma());
+		}
+	}
+	
+	/** Returns the word at the given index or null if there is none */
+	public IndexedWord get(int index) {
+		return index < words.length ? words[index] : null;
+	}
+	
+	/** Returns the largest index of a word plus one */
+	public int size() {
+		return words.length;
+	}
+	
+	/** Returns the index of the given word; the word is added if it is not yet known */
+	int indexOf(IndexedWord word) {
+		int index = word.index();
+		if (index >= words.length) {
+			int oldLength = words.length;
+			words = Arrays.copyOf(words, index + 1);
+			lemmaIds = Arrays.copyOf(lemmaIds, index + 1);
+			Arrays.fill(lemmaIds, oldLength, index + 1, -1);
+		}
+		if (words[index] == null) {
+			words[index] = word;
+			lemmaIds[index] = lemmaIndex.id(word.lemma());
+		}
+		return index;
+	}
+	
+	/** Returns the lemma id of the given word ({@see LemmaIndex}) */
+	public int lemmaId(IndexedWord word) {
+		return lemmaIds[indexOf(word)];
+	}
+	
+	/** Returns the lemma or the original text of the word at the given index */
+	public String text(int index, boolean lemmatize) {
+		return lemmatize ? words[index].lemma() : words[index].originalText();
+	}
+	
+	/** Returns the phrase of this sentence that equals the given phrase; the given phrase is 
+	 * added if there is none */
+	public Phrase intern(Phrase phrase) {
+		Phrase result = phrases.get(phrase);
+		if (result == null) {
+			phrases.put(phrase, phrase);
+			result = phrase;
+		}
+		return result;
+	}
+}
@@ -7,19 +7,52 @@ package de.mpii.clausie;
  * @date $ $
  * @version $ $ */
 public class TextConstituent extends Constituent {
+	private static final long serialVersionUID = 1L;
+
+	/** Where the text of a constituent comes from */
+	public enum Source {
+		/** The text given at construction */
+		LITERAL,
+		/** The current {@link Options#appositionVerb} */
+		APPOSITION_VERB,
+		/** The current {@link Options#possessiveVerb} */
+		POSSESSIVE_VERB
+	};
+
 	String text;
 	
+	Source source = Source.LITERAL;
+	
 	/** Constructs a constituent with a specified textual representation and type. */
 	public TextConstituent(String text, Type type) {
 		super(type);
 		this.text = text;
 	}
 
+	/** Constructs a constituent whose text is taken from the options at generation time; 
+	 * {@code text} is the text for the options used during clause detection. */
+	public TextConstituent(String text, Source source, Type type) {
+		this(text, type);
+		this.source = source;
+	}
+
 	/** Returns a textual representation of the constituent. */
 	public String text() {
 		return text;
 	}
 
+	/** Returns a textual representation of the constituent for the given options. */
+	public String text(Options options) {
+		switch (source) {
+		case APPOSITION_VERB:
+			return options.appositionVerb;
+		case POSSESSIVE_VERB:
+			return options.possessiveVerb;
+		default:
+			return text;
+		}
+	}
+
 	/** Returns a textual representation of the constituent. */
 	public String rootString() {
 		return text;
@@ -0,0 +1,173 @@
+package de.mpii.clausie;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.stanford.nlp.trees.Tree;
+
+/** The ancestry of the leaves of a constituency tree, which is all that conjunction processing
+ * ({@link ProcessConjunctions}) needs from the tree.
+ *
+ * The nodes of the tree are numbered in preorder, so that the subtree of a node is the range of
+ * nodes from the node to the end of its subtree. Labels and words are not kept; instead, each node
+ * has a shape, and two nodes have the same shape if and only if their subtrees are equal
+ * ({@link Tree#equals(Object)}). A few arrays of {@code int}s thus replace the tree with its
+ * labels, so that the tree can be released right after the dependencies have been generated.
+ *
+ * @date $ $
+ * @version $ $ */
+public class TreeSpans implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/** Parent of each node (-1 for the root) */
+	private final int[] parent;
+
+	/** End (exclusive) of the subtree of each node */
+	private final int[] end;
+
+	/** Shape of each node */
+	private final int[] shape;
+
+	/** Node of each leaf, in sentence order */
+	private final int[] leaves;
+
+	/** Nodes labeled ROOT */
+	private final BitSet rootNodes = new BitSet();
+
+	/** Extracts the spans of the given tree */
+	public TreeSpans(Tree tree) {
+		int size = tree.size();
+		parent = new int[size];
+		end = new int[size];
+		shape = new int[size];
+		IntList leafList = new IntList();
+		number(tree, -1, 0, leafList, new HashMap<List<Object>, Integer>());
+		leaves = leafList.toArray();
+	}
+
+	/** Numbers the nodes of the subtree starting at the given node; returns the end of the
+	 * subtree */
+	private int number(Tree tree, int parentNode, int node, IntList leafList,
+			Map<List<Object>, Integer> shapes) {
+		parent[node] = parentNode;
+		if ("ROOT".equals(tree.value())) {
+			rootNodes.set(node);
+		}
+		if (tree.isLeaf()) {
+			leafList.add(node);
+		}
+		List<Object> key = new ArrayList<Object>();
+		key.add(tree.value());
+		int next = node + 1;
+		for (Tree child : tree.children()) {
+			key.add(next);
+			next = number(child, node, next, leafList, shapes);
+		}
+		// replace the child nodes by their shapes
+		for (int i = 1; i < key.size(); i++) {
+			key.set(i, shape[(Integer) key.get(i)]);
+		}
+		Integer s = shapes.get(key);
+		if (s == null) {
+			s = shapes.size();
+			shapes.put(key, s);
+		}
+		shape[node] = s;
+		end[node] = next;
+		return next;
+	}
+
+	/** Returns the number of leaves */
+	public int noLeaves() {
+		return leaves.length;
+	}
+
+	/** Checks whether node {@code ancestor} is {@code node} or one of its ancestors */
+	private boolean dominates(int ancestor, int node) {
+		return ancestor <= node && node < end[ancestor];
+	}
+
+	/** Checks whether the leaf {@code indexCheck} lies below the lowest ancestor of the leaf
+	 * {@code indexElement} that dominates the leaf {@code indexPivot} (or below the ROOT node if
+	 * there is no such ancestor below it); leaves are numbered from 1 */
+	public boolean isDescendant(int indexCheck, int indexPivot, int indexElement) {
+		int pivot = leaves[indexPivot - 1];
+		int element = leaves[indexElement - 1];
+		while (!rootNodes.get(element) && parent[element] >= 0) {
+			if (dominates(element, pivot)) {
+				break;
+			}
+			element = parent[element];
+		}
+		return dominates(element, leaves[indexCheck - 1]);
+	}
+
+	/** Checks whether the leaves {@code firstVerb} and {@code secondVerb} lie below siblings of the
+	 * preterminal of the leaf {@code conj} that are at most three positions apart; leaves are
+	 * numbered from 1 */
+	public boolean nextToVerb(int firstVerb, int secondVerb, int conj) {
+		// this will lead us to the level in the tree we want to compare
+		int conjNode = parent[leaves[conj - 1]];
+		int parentNode = parent[conjNode];
+		if (parentNode < 0) {
+			return false;
+		}
+
+		// the nodes of the conjoints dominating the coordination
+		int fverb = climbToSibling(leaves[firstVerb - 1], parentNode, conjNode);
+		if (fverb < 0) {
+			return false;
+		}
+		int sverb = climbToSibling(leaves[secondVerb - 1], parentNode, conjNode);
+		if (sverb < 0) {
+			return false;
+		}
+
+		// their positions
+		int fv = -1;
+		int sv = -1;
+		int i = 0;
+		for (int child = parentNode + 1; child < end[parentNode]; child = end[child], i++) {
+			if (shape[child] == shape[fverb]) {
+				fv = i;
+			} else if (shape[child] == shape[sverb]) {
+				sv = i;
+			}
+			if (fv >= 0 && sv >= 0) {
+				break;
+			}
+		}
+
+		// the minimum distance between adjacent conjoints is 2 in the most usual case (a, b, c
+		// and d); it is 3 in a, b, c, and d
+		return fv >= 0 && sv >= 0 && sv - fv <= 3;
+	}
+
+	/** Climbs from the given node until a node of the same shape as a sibling of {@code excluded}
+	 * is reached; returns that node or -1 if the root is reached first */
+	private int climbToSibling(int node, int parentNode, int excluded) {
+		while (!isSiblingShape(node, parentNode, excluded)) {
+			node = parent[node];
+			if (node < 0 || shape[node] == shape[0]) {
+				return -1;
+			}
+		}
+		return node;
+	}
+
+	/** Checks whether one of the children of {@code parentNode} other than one child of the shape
+	 * of {@code excluded} has the shape of {@code node} */
+	private boolean isSiblingShape(int node, int parentNode, int excluded) {
+		int count = shape[node] == shape[excluded] ? -1 : 0;
+		for (int child = parentNode + 1; child < end[parentNode]; child = end[child]) {
+			if (shape[child] == shape[node] && ++count > 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
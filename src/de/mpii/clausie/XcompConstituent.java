@@ -18,6 +18,7 @@ import edu.stanford.nlp.trees.semgraph.SemanticGraph;
  * @date $LastChangedDate: 2013-04-23 00:04:28 +0200 (Tue, 23 Apr 2013) $
  * @version $LastChangedRevision: 734 $ */
 public class XcompConstituent extends IndexedConstituent {
+	private static final long serialVersionUID = 1L;
 	
 	/** Clauses derived from this constituent */
 	private List<Clause> clauses;